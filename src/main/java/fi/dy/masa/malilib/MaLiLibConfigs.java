@@ -7,6 +7,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import fi.dy.masa.malilib.config.ConfigJsonCache;
+import fi.dy.masa.malilib.config.ConfigManager;
 import fi.dy.masa.malilib.config.ConfigUtils;
 import fi.dy.masa.malilib.config.IConfigBase;
 import fi.dy.masa.malilib.config.IConfigHandler;
@@ -18,11 +20,11 @@ import fi.dy.masa.malilib.test.ConfigTestOptList;
 import fi.dy.masa.malilib.test.TestEnumConfig;
 import fi.dy.masa.malilib.util.Color4f;
 import fi.dy.masa.malilib.util.FileUtils;
-import fi.dy.masa.malilib.util.JsonUtils;
 
 public class MaLiLibConfigs implements IConfigHandler
 {
     private static final String CONFIG_FILE_NAME = MaLiLibReference.MOD_ID + ".json";
+    private static final ConfigJsonCache JSON_CACHE = new ConfigJsonCache();
 
     private static final String GENERIC_KEY = MaLiLibReference.MOD_ID+".config.generic";
     public static class Generic
@@ -31,12 +33,14 @@ public class MaLiLibConfigs implements IConfigHandler
         public static final ConfigHotkey      OPEN_GUI_CONFIGS          = new ConfigHotkey("openGuiConfigs", "A,C").apply(GENERIC_KEY);
         public static final ConfigBoolean     REALMS_COMMON_CONFIG      = new ConfigBoolean("realmsCommonConfig", true).apply(GENERIC_KEY);
         public static final ConfigBoolean     ENABLE_ACTIONBAR_MESSAGES = new ConfigBoolean("enableActionbarMessages", true).apply(GENERIC_KEY);
+        public static final ConfigBoolean     BATCHED_GUI_RENDERING     = new ConfigBoolean("batchedGuiRendering", false).apply(GENERIC_KEY);
 
         public static final ImmutableList<IConfigValue> OPTIONS = ImmutableList.of(
                 IGNORED_KEYS,
                 OPEN_GUI_CONFIGS,
                 REALMS_COMMON_CONFIG,
-                ENABLE_ACTIONBAR_MESSAGES
+                ENABLE_ACTIONBAR_MESSAGES,
+                BATCHED_GUI_RENDERING
         );
 
         // Can't add OPEN_GUI_CONFIGS here, because things will break
@@ -110,19 +114,19 @@ public class MaLiLibConfigs implements IConfigHandler
 
         if (configFile.exists() && configFile.isFile() && configFile.canRead())
         {
-            JsonElement element = JsonUtils.parseJsonFile(configFile);
+            JsonElement element = JSON_CACHE.readFile(configFile);
 
             if (element != null && element.isJsonObject())
             {
                 JsonObject root = element.getAsJsonObject();
 
-                ConfigUtils.readConfigBase(root, "Generic", Generic.OPTIONS);
-                ConfigUtils.readConfigBase(root, "Debug", Debug.OPTIONS);
+                ConfigUtils.readConfigBase(root, "Generic", Generic.OPTIONS, JSON_CACHE);
+                ConfigUtils.readConfigBase(root, "Debug", Debug.OPTIONS, JSON_CACHE);
 
                 if (MaLiLibReference.DEBUG_MODE)
                 {
-                    ConfigUtils.readConfigBase(root, "Test", Test.OPTIONS);
-                    ConfigUtils.readHotkeyToggleOptions(root, "TestEnumHotkeys", "TestEnumToggles", TestEnumConfig.VALUES);
+                    ConfigUtils.readConfigBase(root, "Test", Test.OPTIONS, JSON_CACHE);
+                    ConfigUtils.readHotkeyToggleOptions(root, "TestEnumHotkeys", "TestEnumToggles", TestEnumConfig.VALUES, JSON_CACHE);
                 }
             }
         }
@@ -135,25 +139,33 @@ public class MaLiLibConfigs implements IConfigHandler
         if ((dir.exists() && dir.isDirectory()) || dir.mkdirs())
         {
             JsonObject root = new JsonObject();
+            File configFile = new File(dir, CONFIG_FILE_NAME);
 
-            ConfigUtils.writeConfigBase(root, "Generic", Generic.OPTIONS);
-            ConfigUtils.writeConfigBase(root, "Debug", Debug.OPTIONS);
+            JSON_CACHE.beginWrite();
+            ConfigUtils.writeConfigBase(root, "Generic", Generic.OPTIONS, JSON_CACHE);
+            ConfigUtils.writeConfigBase(root, "Debug", Debug.OPTIONS, JSON_CACHE);
 
             if (MaLiLibReference.DEBUG_MODE)
             {
-                ConfigUtils.writeConfigBase(root, "Test", Test.OPTIONS);
-                ConfigUtils.writeHotkeyToggleOptions(root, "TestEnumHotkeys", "TestEnumToggles", TestEnumConfig.VALUES);
+                ConfigUtils.writeConfigBase(root, "Test", Test.OPTIONS, JSON_CACHE);
+                ConfigUtils.writeHotkeyToggleOptions(root, "TestEnumHotkeys", "TestEnumToggles", TestEnumConfig.VALUES, JSON_CACHE);
             }
 
-            JsonUtils.writeJsonToFile(root, new File(dir, CONFIG_FILE_NAME));
+            // Nothing has changed since the file was last read or written
+            if (JSON_CACHE.hasChanges() == false && configFile.exists())
+            {
+                return;
+            }
+
+            ConfigManager.getInstance().writeConfigFileAsync(root, configFile);
         }
     }
 
     @Override
     public void onConfigsChanged()
     {
-        saveToFile();
-        loadFromFile();
+        // The values in memory are already up to date, so there is no need to re-load them
+        ConfigManager.getInstance().markConfigsDirty(MaLiLibReference.MOD_ID);
     }
 
     @Override
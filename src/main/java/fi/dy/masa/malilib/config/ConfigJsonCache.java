@@ -0,0 +1,201 @@
+package fi.dy.masa.malilib.config;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+import fi.dy.masa.malilib.config.options.ConfigBase;
+import fi.dy.masa.malilib.hotkeys.IHotkey;
+import fi.dy.masa.malilib.util.AsyncJsonWriter;
+import fi.dy.masa.malilib.util.JsonUtils;
+
+/**
+ * Caches the serialized JSON data of the configs of one config file,
+ * so that saving only needs to re-serialize the options that have changed,
+ * and loading only needs to re-apply the options whose value differs from the file.
+ * The file contents are also cached, and the file is only re-parsed
+ * if its size or modification time has changed.
+ * <br>
+ * Simple value options extending {@link ConfigBase} are tracked via their value version,
+ * see {@link ConfigBase#getValueVersion()}. All other options (lists, hotkeys etc.)
+ * can be modified in place without any notification, so they are always re-serialized.
+ * <br>
+ * Use the overloads in {@link ConfigUtils} that take a cache, with one cache per config file.
+ */
+public class ConfigJsonCache
+{
+    private final Map<String, Map<IConfigBase, Entry>> categories = new HashMap<>();
+    @Nullable private JsonElement fileContents;
+    private long fileSize = -1L;
+    private long fileModified = -1L;
+    private boolean changed;
+
+    /**
+     * Reads the given file, or returns the previously read contents,
+     * if the file's size and modification time haven't changed.
+     * The returned data must not be modified.
+     * @param file
+     * @return
+     */
+    @Nullable
+    public JsonElement readFile(File file)
+    {
+        // Data waiting to be written is newer than the file
+        JsonObject pending = AsyncJsonWriter.getInstance().getPendingData(file);
+
+        if (pending != null)
+        {
+            this.fileContents = null;
+            return pending;
+        }
+
+        long size = file.length();
+        long modified = file.lastModified();
+
+        if (this.fileContents != null && size == this.fileSize && modified == this.fileModified)
+        {
+            return this.fileContents;
+        }
+
+        this.fileContents = JsonUtils.parseJsonFile(file);
+        this.fileSize = size;
+        this.fileModified = modified;
+
+        return this.fileContents;
+    }
+
+    /**
+     * Starts a new serialization pass. Use {@link #hasChanges()} after writing all the options
+     * to check if anything has changed since the previous pass.
+     */
+    public void beginWrite()
+    {
+        this.changed = false;
+    }
+
+    /**
+     * @return true if any of the options written since {@link #beginWrite()} had a different value
+     * than what was written or read the previous time
+     */
+    public boolean hasChanges()
+    {
+        return this.changed;
+    }
+
+    /**
+     * Forgets all the cached data, so that the next save writes everything again,
+     * and the next load re-reads the file and re-applies all the options
+     */
+    public void invalidate()
+    {
+        this.categories.clear();
+        this.fileContents = null;
+        this.fileSize = -1L;
+        this.fileModified = -1L;
+    }
+
+    /**
+     * Returns the JSON data of the option, re-serializing it only if it may have changed
+     * @param category
+     * @param option
+     * @return
+     */
+    JsonElement getElement(String category, IConfigBase option)
+    {
+        Map<IConfigBase, Entry> entries = this.getEntries(category);
+        Entry entry = entries.get(option);
+
+        if (entry != null && isTracked(option) && entry.isUpToDate(option))
+        {
+            return entry.element;
+        }
+
+        return this.update(entries, entry, option, option.getAsJsonElement());
+    }
+
+    /**
+     * Returns the JSON data of the keybind of the hotkey, using the given freshly serialized data
+     * if the value differs from the previously cached data
+     */
+    JsonElement getElement(String category, IConfigBase option, JsonElement element)
+    {
+        Map<IConfigBase, Entry> entries = this.getEntries(category);
+        return this.update(entries, entries.get(option), option, element);
+    }
+
+    /**
+     * Checks if the option needs to be set from the given JSON data,
+     * which is the case if the data or the option's value has changed since the previous read or write
+     * @param category
+     * @param option
+     * @param element
+     * @return
+     */
+    boolean needsRead(String category, IConfigBase option, JsonElement element)
+    {
+        Entry entry = this.getEntries(category).get(option);
+        return entry == null || isTracked(option) == false || entry.isUpToDate(option) == false || entry.element.equals(element) == false;
+    }
+
+    /**
+     * Records the current JSON data of the option, after it has been set from the file
+     */
+    void onRead(String category, IConfigBase option, JsonElement element)
+    {
+        this.getEntries(category).put(option, new Entry(option, element));
+    }
+
+    private JsonElement update(Map<IConfigBase, Entry> entries, @Nullable Entry entry, IConfigBase option, JsonElement element)
+    {
+        if (entry != null && entry.element.equals(element))
+        {
+            // Keep the old instance, and refresh the version
+            element = entry.element;
+        }
+        else
+        {
+            this.changed = true;
+        }
+
+        entries.put(option, new Entry(option, element));
+
+        return element;
+    }
+
+    private Map<IConfigBase, Entry> getEntries(String category)
+    {
+        return this.categories.computeIfAbsent(category, (c) -> new Reference2ObjectOpenHashMap<>());
+    }
+
+    private static boolean isTracked(IConfigBase option)
+    {
+        return option instanceof ConfigBase<?> && option instanceof IConfigValue && (option instanceof IHotkey) == false;
+    }
+
+    private static class Entry
+    {
+        private final JsonElement element;
+        private final int version;
+        @Nullable private final String stringValue;
+
+        private Entry(IConfigBase option, JsonElement element)
+        {
+            this.element = element;
+            this.version = option instanceof ConfigBase<?> base ? base.getValueVersion() : 0;
+            // Not all the setters notify about the change, so also compare the cheap string value as a safety net
+            this.stringValue = option instanceof IConfigValue value ? value.getStringValue() : null;
+        }
+
+        private boolean isUpToDate(IConfigBase option)
+        {
+            return option instanceof ConfigBase<?> base &&
+                   base.getValueVersion() == this.version &&
+                   option instanceof IConfigValue value &&
+                   value.getStringValue().equals(this.stringValue);
+        }
+    }
+}
@@ -2,17 +2,32 @@ package fi.dy.masa.malilib.config;
 
 import org.jetbrains.annotations.ApiStatus;
 
+import java.io.File;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import com.google.gson.JsonObject;
 import org.jetbrains.annotations.ApiStatus;
 
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.util.Util;
+
 import fi.dy.masa.malilib.MaLiLib;
+import fi.dy.masa.malilib.hotkeys.KeybindCategory;
+import fi.dy.masa.malilib.util.AsyncJsonWriter;
 
 public class ConfigManager implements IConfigManager
 {
     private static final ConfigManager INSTANCE = new ConfigManager();
 
+    private static final long SAVE_DELAY_MS = 1000L;
+
     private final Map<String, IConfigHandler> configHandlers = new HashMap<>();
+    private final Set<String> dirtyModIds = new LinkedHashSet<>();
+    private long saveDeadline;
 
     public static IConfigManager getInstance()
     {
@@ -36,10 +51,112 @@ public class ConfigManager implements IConfigManager
         }
     }
 
+    @Override
+    public void markConfigsDirty(String modId)
+    {
+        if (this.configHandlers.containsKey(modId))
+        {
+            this.dirtyModIds.add(modId);
+            this.saveDeadline = Util.getMeasuringTimeMs() + SAVE_DELAY_MS;
+        }
+    }
+
+    @Override
+    public void writeConfigFileAsync(JsonObject root, File file)
+    {
+        AsyncJsonWriter.getInstance().submit(root, file);
+    }
+
+    @Override
+    public void saveConfigs(Collection<String> modIds)
+    {
+        for (String modId : modIds)
+        {
+            IConfigHandler handler = this.configHandlers.get(modId);
+
+            if (handler != null)
+            {
+                this.dirtyModIds.remove(modId);
+                handler.save();
+            }
+        }
+    }
+
+    /**
+     * Returns the mod ID of the registered config handler that owns the hotkeys in the given category.
+     * The categories only store the mod name, so this matches it against the registered
+     * mod IDs and the names of those mods.
+     * @return the mod ID, or null if no matching config handler is found
+     */
+    @Nullable
+    public String getModIdForCategory(KeybindCategory category)
+    {
+        String modName = category.getModName();
+
+        if (this.configHandlers.containsKey(modName))
+        {
+            return modName;
+        }
+
+        for (String modId : this.configHandlers.keySet())
+        {
+            if (modId.equalsIgnoreCase(modName) ||
+                FabricLoader.getInstance().getModContainer(modId)
+                        .map((c) -> c.getMetadata().getName().equals(modName)).orElse(false))
+            {
+                return modId;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Saves the dirty configs once there haven't been any new changes for a while
+     */
+    @ApiStatus.Internal
+    public void onClientTick()
+    {
+        if (this.dirtyModIds.isEmpty() == false && Util.getMeasuringTimeMs() >= this.saveDeadline)
+        {
+            this.saveDirtyConfigs();
+        }
+    }
+
+    private void saveDirtyConfigs()
+    {
+        if (this.dirtyModIds.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            for (String modId : this.dirtyModIds)
+            {
+                IConfigHandler handler = this.configHandlers.get(modId);
+
+                if (handler != null)
+                {
+                    handler.save();
+                }
+            }
+        }
+        finally
+        {
+            this.dirtyModIds.clear();
+        }
+    }
+
     @ApiStatus.Internal
     public void loadAllConfigs()
     {
         MaLiLib.printDebug("loadAllConfigs()");
+
+        // Don't lose any pending changes, and make sure that the files are up to date before reading them
+        this.saveDirtyConfigs();
+        AsyncJsonWriter.getInstance().flush();
+
         for (IConfigHandler handler : this.configHandlers.values())
         {
             handler.load();
@@ -50,9 +167,22 @@ public class ConfigManager implements IConfigManager
     public void saveAllConfigs()
     {
         MaLiLib.printDebug("saveAllConfigs()");
+        this.dirtyModIds.clear();
+
         for (IConfigHandler handler : this.configHandlers.values())
         {
             handler.save();
         }
     }
+
+    /**
+     * Saves any pending changes and waits for all the queued writes to finish.
+     * Called when the game is shutting down.
+     */
+    @ApiStatus.Internal
+    public void flushPendingSaves()
+    {
+        this.saveDirtyConfigs();
+        AsyncJsonWriter.getInstance().flush();
+    }
 }
@@ -1,7 +1,9 @@
 package fi.dy.masa.malilib.config;
 
 import java.util.List;
+import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import fi.dy.masa.malilib.config.options.ConfigTypeWrapper;
@@ -12,6 +14,15 @@ import fi.dy.masa.malilib.util.JsonUtils;
 public class ConfigUtils
 {
     public static void readConfigBase(JsonObject root, String category, List<? extends IConfigBase> options)
+    {
+        readConfigBase(root, category, options, null);
+    }
+
+    /**
+     * Reads the options from the given category.
+     * If a cache is given, then the options whose value already matches the data are skipped.
+     */
+    public static void readConfigBase(JsonObject root, String category, List<? extends IConfigBase> options, @Nullable ConfigJsonCache cache)
     {
         JsonObject obj = JsonUtils.getNestedObject(root, category, false);
 
@@ -23,13 +34,28 @@ public class ConfigUtils
 
                 if (obj.has(name))
                 {
-                    option.setValueFromJsonElement(obj.get(name));
+                    JsonElement element = obj.get(name);
+
+                    if (cache == null)
+                    {
+                        option.setValueFromJsonElement(element);
+                    }
+                    else if (cache.needsRead(category, option, element))
+                    {
+                        option.setValueFromJsonElement(element);
+                        cache.onRead(category, option, option.getAsJsonElement());
+                    }
                 }
             }
         }
     }
 
     public static void readHotkeys(JsonObject root, String keyHotkey, List<? extends IHotkey> hotkeys)
+    {
+        readHotkeys(root, keyHotkey, hotkeys, null);
+    }
+
+    public static void readHotkeys(JsonObject root, String keyHotkey, List<? extends IHotkey> hotkeys, @Nullable ConfigJsonCache cache)
     {
         JsonObject objHotkeys = JsonUtils.getNestedObject(root, keyHotkey, false);
 
@@ -49,34 +75,63 @@ public class ConfigUtils
                 {
                     hotkey.getKeybind().setValueFromString(JsonUtils.getString(objHotkeys, name));
                 }
+                else
+                {
+                    continue;
+                }
+
+                if (cache != null)
+                {
+                    // Keybinds are always re-applied, this is just so that the next save can detect any changes
+                    cache.onRead(keyHotkey, hotkey, getKeybindAsJson(hotkey.getKeybind()));
+                }
             }
         }
     }
 
     public static void readHotkeyToggleOptions(JsonObject root, String keyHotkey, String keyBoolean, List<? extends IHotkeyTogglable> options)
+    {
+        readHotkeyToggleOptions(root, keyHotkey, keyBoolean, options, null);
+    }
+
+    public static void readHotkeyToggleOptions(JsonObject root, String keyHotkey, String keyBoolean, List<? extends IHotkeyTogglable> options, @Nullable ConfigJsonCache cache)
     {
         if (JsonUtils.hasObject(root, keyHotkey))
         {
-            readHotkeys(root, keyHotkey, options);
+            readHotkeys(root, keyHotkey, options, cache);
         }
 
         if (JsonUtils.hasObject(root, keyBoolean))
         {
-            readConfigBase(root, keyBoolean, options);
+            readConfigBase(root, keyBoolean, options, cache);
         }
     }
 
     public static void writeConfigBase(JsonObject root, String category, List<? extends IConfigBase> options)
+    {
+        writeConfigBase(root, category, options, null);
+    }
+
+    /**
+     * Writes the options to the given category.
+     * If a cache is given, then the previously serialized data is re-used for the options that haven't changed.
+     */
+    public static void writeConfigBase(JsonObject root, String category, List<? extends IConfigBase> options, @Nullable ConfigJsonCache cache)
     {
         JsonObject obj = JsonUtils.getNestedObject(root, category, true);
 
         for (IConfigBase option : options)
         {
-            obj.add(option.getName(), option.getAsJsonElement());
+            obj.add(option.getName(), cache != null ? cache.getElement(category, option) : option.getAsJsonElement());
         }
     }
 
     public static void writeHotkeys(JsonObject root, String category, List<? extends IHotkey> hotkeys)
+    {
+        writeHotkeys(root, category, hotkeys, null);
+    }
+
+    public static void writeHotkeys(JsonObject root, String category, List<? extends IHotkey> hotkeys, @Nullable ConfigJsonCache cache)
     {
         // Note: This method can't just call writeConfigBase, as the base config type might
         // not serialize the hotkey, but instead some other config data.
@@ -86,24 +141,40 @@ public class ConfigUtils
 
         for (IHotkey hotkey : hotkeys)
         {
-            IKeybind keybind = hotkey.getKeybind();
-            JsonObject obj = new JsonObject();
-
-            obj.add("keys", new JsonPrimitive(keybind.getStringValue()));
+            JsonElement obj = getKeybindAsJson(hotkey.getKeybind());
 
-            if (keybind.areSettingsModified())
+            if (cache != null)
             {
-                obj.add("settings", keybind.getSettings().toJson());
+                obj = cache.getElement(category, hotkey, obj);
             }
 
             objHotkeys.add(hotkey.getName(), obj);
         }
     }
 
+    private static JsonObject getKeybindAsJson(IKeybind keybind)
+    {
+        JsonObject obj = new JsonObject();
+
+        obj.add("keys", new JsonPrimitive(keybind.getStringValue()));
+
+        if (keybind.areSettingsModified())
+        {
+            obj.add("settings", keybind.getSettings().toJson());
+        }
+
+        return obj;
+    }
+
     public static void writeHotkeyToggleOptions(JsonObject root, String keyHotkey, String keyBoolean, List<? extends IHotkeyTogglable> options)
     {
-        writeConfigBase(root, keyBoolean, options);
-        writeHotkeys(root, keyHotkey, options);
+        writeHotkeyToggleOptions(root, keyHotkey, keyBoolean, options, null);
+    }
+
+    public static void writeHotkeyToggleOptions(JsonObject root, String keyHotkey, String keyBoolean, List<? extends IHotkeyTogglable> options, @Nullable ConfigJsonCache cache)
+    {
+        writeConfigBase(root, keyBoolean, options, cache);
+        writeHotkeys(root, keyHotkey, options, cache);
     }
 
     /**
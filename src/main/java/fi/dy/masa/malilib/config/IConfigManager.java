@@ -1,5 +1,9 @@
 package fi.dy.masa.malilib.config;
 
+import java.io.File;
+import java.util.Collection;
+import com.google.gson.JsonObject;
+
 public interface IConfigManager
 {
     /**
@@ -14,4 +18,31 @@ public interface IConfigManager
      * @param modId
      */
     void onConfigsChanged(String modId);
+
+    /**
+     * Marks the configs of the given mod as changed, so that they get saved
+     * on a background thread shortly after, instead of immediately.
+     * Multiple calls in quick succession result in only one save.
+     * @param modId
+     */
+    void markConfigsDirty(String modId);
+
+    /**
+     * Queues the JSON data to be written to the given config file on a background thread.
+     * Multiple queued writes to the same file are coalesced into one write of the latest data,
+     * and reads via {@link fi.dy.masa.malilib.util.JsonUtils#parseJsonFile(File)} see the queued data.
+     * All queued writes are finished before the configs are re-loaded, and when the game closes.
+     * The data must not be modified after this call.
+     * @param root
+     * @param file
+     */
+    void writeConfigFileAsync(JsonObject root, File file);
+
+    /**
+     * Saves the configs of only the given mods right away,
+     * for example after changing a few configs in a GUI that shows the configs of several mods.
+     * Unknown mod IDs are ignored.
+     * @param modIds
+     */
+    void saveConfigs(Collection<String> modIds);
 }
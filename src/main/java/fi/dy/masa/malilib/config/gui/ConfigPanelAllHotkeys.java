@@ -1,18 +1,45 @@
 package fi.dy.masa.malilib.config.gui;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
 import fi.dy.masa.malilib.MaLiLibReference;
 import fi.dy.masa.malilib.config.ConfigManager;
+import fi.dy.masa.malilib.config.IConfigBase;
 import fi.dy.masa.malilib.event.InputEventHandler;
 import fi.dy.masa.malilib.hotkeys.IHotkey;
+import fi.dy.masa.malilib.hotkeys.IKeybind;
+import fi.dy.masa.malilib.hotkeys.IKeybindManager;
 import fi.dy.masa.malilib.hotkeys.KeybindCategory;
+import fi.dy.masa.malilib.hotkeys.KeybindSettings;
 
 public class ConfigPanelAllHotkeys extends GuiModConfigs
 {
+    protected final Map<IHotkey, TrackedHotkey> trackedHotkeys = new Reference2ObjectLinkedOpenHashMap<>();
+
     public ConfigPanelAllHotkeys()
     {
-        super(MaLiLibReference.MOD_ID, createWrappers(), false, "malilib.gui.title.all_hotkeys");
+        this(createWrappers(), "malilib.gui.title.all_hotkeys");
+    }
+
+    protected ConfigPanelAllHotkeys(List<ConfigOptionWrapper> wrappers, String titleKey)
+    {
+        super(MaLiLibReference.MOD_ID, wrappers, false, titleKey);
+
+        // Remember the current state of each hotkey, so that only the mods
+        // whose hotkeys actually get changed need to be saved
+        for (KeybindCategory category : InputEventHandler.getKeybindManager().getKeybindCategories())
+        {
+            for (IHotkey hotkey : category.getHotkeys())
+            {
+                this.trackedHotkeys.putIfAbsent(hotkey, new TrackedHotkey(category, HotkeyState.of(hotkey)));
+            }
+        }
     }
 
     protected static List<ConfigOptionWrapper> createWrappers()
@@ -44,10 +71,78 @@ public class ConfigPanelAllHotkeys extends GuiModConfigs
         return builder.build();
     }
 
+    @Override
+    @Nullable
+    public String getModNameForSearch(IConfigBase config)
+    {
+        TrackedHotkey tracked = config instanceof IHotkey ? this.trackedHotkeys.get(config) : null;
+        return tracked != null ? tracked.category.getModName() : null;
+    }
+
     @Override
     protected void onSettingsChanged()
     {
-        ((ConfigManager) ConfigManager.getInstance()).saveAllConfigs();
-        InputEventHandler.getKeybindManager().updateUsedKeys();
+        ConfigManager configManager = (ConfigManager) ConfigManager.getInstance();
+        IKeybindManager keybindManager = InputEventHandler.getKeybindManager();
+        List<IKeybind> changedKeybinds = new ArrayList<>();
+        Set<String> changedModIds = new LinkedHashSet<>();
+        boolean saveAll = false;
+
+        for (Map.Entry<IHotkey, TrackedHotkey> entry : this.trackedHotkeys.entrySet())
+        {
+            IHotkey hotkey = entry.getKey();
+            TrackedHotkey tracked = entry.getValue();
+            HotkeyState state = HotkeyState.of(hotkey);
+
+            if (state.equals(tracked.state) == false)
+            {
+                String modId = configManager.getModIdForCategory(tracked.category);
+
+                if (modId != null)
+                {
+                    changedModIds.add(modId);
+                }
+                else
+                {
+                    saveAll = true;
+                }
+
+                changedKeybinds.add(hotkey.getKeybind());
+                tracked.state = state;
+            }
+        }
+
+        // Fall back to saving everything if the changes couldn't be attributed to the mods
+        if (saveAll || changedKeybinds.isEmpty())
+        {
+            configManager.saveAllConfigs();
+            keybindManager.updateUsedKeys();
+        }
+        else
+        {
+            configManager.saveConfigs(changedModIds);
+            keybindManager.updateUsedKeys(changedKeybinds);
+        }
+    }
+
+    protected static class TrackedHotkey
+    {
+        protected final KeybindCategory category;
+        protected HotkeyState state;
+
+        protected TrackedHotkey(KeybindCategory category, HotkeyState state)
+        {
+            this.category = category;
+            this.state = state;
+        }
+    }
+
+    protected record HotkeyState(String value, String keys, KeybindSettings settings)
+    {
+        public static HotkeyState of(IHotkey hotkey)
+        {
+            IKeybind keybind = hotkey.getKeybind();
+            return new HotkeyState(hotkey.getStringValue(), keybind.getStringValue(), keybind.getSettings());
+        }
     }
 }
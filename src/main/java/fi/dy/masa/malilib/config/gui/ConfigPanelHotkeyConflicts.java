@@ -0,0 +1,45 @@
+package fi.dy.masa.malilib.config.gui;
+
+import java.util.List;
+import com.google.common.collect.ImmutableList;
+import fi.dy.masa.malilib.event.InputEventHandler;
+import fi.dy.masa.malilib.hotkeys.HotkeyIndex;
+import fi.dy.masa.malilib.hotkeys.KeybindCategory;
+
+/**
+ * Lists all the pairs of registered hotkeys whose keybinds overlap each other, across all mods
+ */
+public class ConfigPanelHotkeyConflicts extends ConfigPanelAllHotkeys
+{
+    public ConfigPanelHotkeyConflicts()
+    {
+        super(createConflictWrappers(), "malilib.gui.title.hotkey_conflicts");
+    }
+
+    protected static List<ConfigOptionWrapper> createConflictWrappers()
+    {
+        List<HotkeyIndex.Conflict> conflicts = InputEventHandler.getKeybindManager().getHotkeyConflicts();
+        ImmutableList.Builder<ConfigOptionWrapper> builder = ImmutableList.builder();
+        boolean first = true;
+
+        for (HotkeyIndex.Conflict conflict : conflicts)
+        {
+            if (first == false)
+            {
+                builder.add(new ConfigOptionWrapper(""));
+            }
+
+            builder.add(new ConfigOptionWrapper(getCategoryName(conflict.category1()) + " / " + getCategoryName(conflict.category2())));
+            builder.add(new ConfigOptionWrapper(conflict.hotkey1()));
+            builder.add(new ConfigOptionWrapper(conflict.hotkey2()));
+            first = false;
+        }
+
+        return builder.build();
+    }
+
+    protected static String getCategoryName(KeybindCategory category)
+    {
+        return category.getModName() + " - " + category.getCategory();
+    }
+}
@@ -22,6 +22,7 @@ public abstract class ConfigBase<T extends IConfigBase> implements IConfigBase,
     private String translationPrefix = "";
     @Nullable
     private IValueChangeCallback<T> callback;
+    private int valueVersion;
 
     public static final String COMMENT_KEY = "comment";
     public static final String PRETTY_NAME_KEY = "prettyName";
@@ -207,9 +208,22 @@ public abstract class ConfigBase<T extends IConfigBase> implements IConfigBase,
         this.callback = callback;
     }
 
+    /**
+     * Returns a counter that gets incremented every time the value is changed
+     * via {@link #onValueChanged()}. This can be used to cheaply check
+     * whether the value may have changed since some earlier point.
+     * @return
+     */
+    public int getValueVersion()
+    {
+        return this.valueVersion;
+    }
+
     @SuppressWarnings("unchecked")
     public void onValueChanged()
     {
+        ++this.valueVersion;
+
         if (this.callback != null)
         {
             this.callback.onValueChanged((T) this);
@@ -4,8 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nonnull;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
+import javax.annotation.Nullable;
 import org.jetbrains.annotations.ApiStatus;
 import org.lwjgl.glfw.GLFW;
 
@@ -13,9 +12,11 @@ import net.minecraft.client.MinecraftClient;
 import fi.dy.masa.malilib.MaLiLib;
 import fi.dy.masa.malilib.MaLiLibConfigs;
 import fi.dy.masa.malilib.gui.Message;
+import fi.dy.masa.malilib.hotkeys.HotkeyIndex;
 import fi.dy.masa.malilib.hotkeys.IHotkey;
 import fi.dy.masa.malilib.hotkeys.IInputManager;
 import fi.dy.masa.malilib.hotkeys.IKeybind;
+import fi.dy.masa.malilib.hotkeys.KeybindIndex;
 import fi.dy.masa.malilib.hotkeys.IKeybindManager;
 import fi.dy.masa.malilib.hotkeys.IKeybindProvider;
 import fi.dy.masa.malilib.hotkeys.IKeyboardInputHandler;
@@ -28,7 +29,8 @@ public class InputEventHandler implements IKeybindManager, IInputManager
 {
     private static final InputEventHandler INSTANCE = new InputEventHandler();
 
-    private final Multimap<Integer, IKeybind> hotkeyMap = ArrayListMultimap.create();
+    private final KeybindIndex keybindIndex = new KeybindIndex();
+    private final HotkeyIndex hotkeyIndex = new HotkeyIndex();
     private final List<KeybindCategory> allKeybinds = new ArrayList<>();
     private final List<IKeybindProvider> keybindProviders = new ArrayList<>();
     private final List<IKeyboardInputHandler> keyboardHandlers = new ArrayList<>();
@@ -73,23 +75,31 @@ public class InputEventHandler implements IKeybindManager, IInputManager
     @Override
     public void updateUsedKeys()
     {
-        this.hotkeyMap.clear();
+        this.keybindIndex.clear();
 
         for (IKeybindProvider handler : this.keybindProviders)
         {
             handler.addKeysToMap(this);
         }
+
+        this.hotkeyIndex.rebuild(this.allKeybinds);
     }
 
     @Override
-    public void addKeybindToMap(IKeybind keybind)
+    public void updateUsedKeys(Collection<? extends IKeybind> keybinds)
     {
-        Collection<Integer> keys = keybind.getKeys();
-
-        for (int key : keys)
+        for (IKeybind keybind : keybinds)
         {
-            this.hotkeyMap.put(key, keybind);
+            this.keybindIndex.updateKeybind(keybind);
         }
+
+        this.hotkeyIndex.markDirty();
+    }
+
+    @Override
+    public void addKeybindToMap(IKeybind keybind)
+    {
+        this.keybindIndex.addKeybind(keybind);
     }
 
     @Override
@@ -100,6 +110,42 @@ public class InputEventHandler implements IKeybindManager, IInputManager
         // Remove a previous entry, if any (matched based on the modName and keyCategory only!)
         this.allKeybinds.remove(cat);
         this.allKeybinds.add(cat);
+        this.hotkeyIndex.markDirty();
+    }
+
+    @Override
+    public List<IHotkey> getHotkeysUsingKey(int keyCode)
+    {
+        return this.getHotkeyIndex().getHotkeysUsingKey(keyCode);
+    }
+
+    @Override
+    public List<IHotkey> getHotkeysOverlapping(IKeybind keys)
+    {
+        return this.getHotkeyIndex().getHotkeysOverlapping(keys);
+    }
+
+    @Override
+    public List<HotkeyIndex.Conflict> getHotkeyConflicts()
+    {
+        return this.getHotkeyIndex().getConflicts();
+    }
+
+    @Override
+    @Nullable
+    public KeybindCategory getCategoryForHotkey(IHotkey hotkey)
+    {
+        return this.getHotkeyIndex().getCategory(hotkey);
+    }
+
+    private HotkeyIndex getHotkeyIndex()
+    {
+        if (this.hotkeyIndex.needsRebuild())
+        {
+            this.hotkeyIndex.rebuild(this.allKeybinds);
+        }
+
+        return this.hotkeyIndex;
     }
 
     @Override
@@ -255,18 +301,6 @@ public class InputEventHandler implements IKeybindManager, IInputManager
 
     private boolean checkKeyBindsForChanges(int eventKey)
     {
-        boolean cancel = false;
-        Collection<IKeybind> keybinds = this.hotkeyMap.get(eventKey);
-
-        if (keybinds.isEmpty() == false)
-        {
-            for (IKeybind keybind : keybinds)
-            {
-                // Note: isPressed() has to get called for key releases too, to reset the state
-                cancel |= keybind.updateIsPressed();
-            }
-        }
-
-        return cancel;
+        return this.keybindIndex.updateKeybindsForKey(eventKey);
     }
 }
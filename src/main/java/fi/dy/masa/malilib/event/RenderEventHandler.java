@@ -19,6 +19,7 @@ import net.minecraft.util.profiler.Profilers;
 import fi.dy.masa.malilib.MaLiLibReference;
 import fi.dy.masa.malilib.interfaces.IRenderDispatcher;
 import fi.dy.masa.malilib.interfaces.IRenderer;
+import fi.dy.masa.malilib.render.QuadBatcher;
 import fi.dy.masa.malilib.util.InfoUtils;
 
 public class RenderEventHandler implements IRenderDispatcher
@@ -100,6 +101,8 @@ public class RenderEventHandler implements IRenderDispatcher
 
         if (this.overlayRenderers.isEmpty() == false)
         {
+            QuadBatcher.getInstance().begin();
+
             for (IRenderer renderer : this.overlayRenderers)
             {
                 profiler.push(renderer.getProfilerSectionSupplier());
@@ -107,6 +110,8 @@ public class RenderEventHandler implements IRenderDispatcher
                 renderer.onRenderGameOverlayPost(drawContext);
                 profiler.pop();
             }
+
+            QuadBatcher.getInstance().end();
         }
 
         profiler.push("malilib_ingamemessages");
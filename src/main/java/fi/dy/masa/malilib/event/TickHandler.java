@@ -5,7 +5,10 @@ import java.util.List;
 import org.jetbrains.annotations.ApiStatus;
 
 import net.minecraft.client.MinecraftClient;
+import fi.dy.masa.malilib.config.ConfigManager;
 import fi.dy.masa.malilib.interfaces.IClientTickHandler;
+import fi.dy.masa.malilib.network.PacketSplitter;
+import fi.dy.masa.malilib.util.InventoryCountTracker;
 
 public class TickHandler
 {
@@ -29,6 +32,10 @@ public class TickHandler
     @ApiStatus.Internal
     public void onClientTick(MinecraftClient mc)
     {
+        ((ConfigManager) ConfigManager.getInstance()).onClientTick();
+        InventoryCountTracker.getInstance().onClientTick();
+        PacketSplitter.getReadingSessionManager().onClientTick();
+
         if (this.clientTickHandlers.isEmpty() == false)
         {
             for (IClientTickHandler handler : this.clientTickHandlers)
@@ -10,6 +10,11 @@ import net.minecraft.client.world.ClientWorld;
 import net.minecraft.registry.DynamicRegistryManager;
 import fi.dy.masa.malilib.config.ConfigManager;
 import fi.dy.masa.malilib.interfaces.IWorldLoadListener;
+import fi.dy.masa.malilib.network.PacketSplitter;
+import fi.dy.masa.malilib.render.ItemPreviewCache;
+import fi.dy.masa.malilib.util.InventoryCountTracker;
+import fi.dy.masa.malilib.util.NbtInventoryDecoder;
+import fi.dy.masa.malilib.util.restrictions.UsageRestriction;
 
 public class WorldLoadHandler implements IWorldLoadManager
 {
@@ -56,6 +61,9 @@ public class WorldLoadHandler implements IWorldLoadManager
     @ApiStatus.Internal
     public void onWorldLoadImmutable(DynamicRegistryManager.Immutable immutable)
     {
+        // The tags have been received from the server at this point
+        UsageRestriction.onTagsChanged();
+
         if (this.worldLoadPreHandlers.isEmpty() == false)
         {
             for (IWorldLoadListener listener : this.worldLoadPreHandlers)
@@ -80,10 +88,16 @@ public class WorldLoadHandler implements IWorldLoadManager
     @ApiStatus.Internal
     public void onWorldLoadPost(@Nullable ClientWorld worldBefore, @Nullable ClientWorld worldAfter, MinecraftClient mc)
     {
+        // The cached previews may depend on the registries of the previous world
+        ItemPreviewCache.getInstance().clear();
+        InventoryCountTracker.getInstance().clear();
+        NbtInventoryDecoder.getInstance().clear();
+
         // Save all the configs when exiting a world
         if (worldBefore != null && worldAfter == null)
         {
             ((ConfigManager) ConfigManager.getInstance()).saveAllConfigs();
+            PacketSplitter.getReadingSessionManager().clear();
             //SyncHandler.getInstance().onStopServices();
         }
         // (Re-)Load all the configs from file when entering a world
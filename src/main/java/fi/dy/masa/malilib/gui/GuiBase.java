@@ -24,6 +24,7 @@ import fi.dy.masa.malilib.gui.widgets.WidgetLabel;
 import fi.dy.masa.malilib.gui.wrappers.TextFieldWrapper;
 import fi.dy.masa.malilib.interfaces.IStringConsumer;
 import fi.dy.masa.malilib.render.MessageRenderer;
+import fi.dy.masa.malilib.render.QuadBatcher;
 import fi.dy.masa.malilib.render.RenderUtils;
 import fi.dy.masa.malilib.util.KeyCodes;
 
@@ -174,6 +175,8 @@ public abstract class GuiBase extends Screen implements IMessageConsumer, IStrin
             this.drawContext = drawContext;
         }
 
+        QuadBatcher.getInstance().begin();
+
         this.drawScreenBackground(drawContext, mouseX, mouseY);
         this.drawTitle(drawContext, mouseX, mouseY, partialTicks);
 
@@ -187,6 +190,8 @@ public abstract class GuiBase extends Screen implements IMessageConsumer, IStrin
         this.drawButtonHoverTexts(mouseX, mouseY, partialTicks, drawContext);
         this.drawHoveredWidget(mouseX, mouseY, drawContext);
         this.drawGuiMessages(drawContext);
+
+        QuadBatcher.getInstance().end();
     }
 
     protected DrawContext getDrawContext()
@@ -143,6 +143,17 @@ public abstract class GuiConfigsBase extends GuiListBase<ConfigOptionWrapper, Wi
         return this.modId;
     }
 
+    /**
+     * Only GUIs that list configs from several different mods should return something here,
+     * otherwise the mod name would match every entry in the list.
+     * @return the mod name to match the search filter against for the given config, or null for none
+     */
+    @Nullable
+    public String getModNameForSearch(IConfigBase config)
+    {
+        return null;
+    }
+
     @Override
     @Nullable
     public IConfigInfoProvider getHoverInfoProvider()
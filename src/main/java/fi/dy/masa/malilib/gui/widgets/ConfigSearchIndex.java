@@ -0,0 +1,256 @@
+package fi.dy.masa.malilib.gui.widgets;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import fi.dy.masa.malilib.config.IConfigBase;
+import fi.dy.masa.malilib.config.IConfigResettable;
+import fi.dy.masa.malilib.gui.GuiConfigsBase.ConfigOptionWrapper;
+import fi.dy.masa.malilib.hotkeys.IHotkey;
+import fi.dy.masa.malilib.hotkeys.IKeybind;
+
+/**
+ * A search index for the config list entries. The lower case search text of each config
+ * is built once from the list's {@link WidgetListBase#getEntryStringsForFilter(Object)} strings
+ * when the index is created, instead of for every entry on every key press.
+ * The bound keys and the modified status are re-checked on each search, since they can change
+ * while the GUI is open.
+ * <br>
+ * When the new filter only narrows down the previous filter (for example when more characters
+ * are typed to the end of it), then only the previous matches are checked again.
+ */
+public class ConfigSearchIndex
+{
+    private static final String MODIFIED = "modified";
+
+    private final ConfigOptionWrapper[] wrappers;
+    private final String[] searchTexts;
+    private final boolean[] emptyEntryMatches;
+    private final IKeybind[] keybinds;
+    private final String[] keysTexts;
+    private final int[] keysHashes;
+    private final boolean[] modifiedStates;
+    private final IntArrayList lastMatches = new IntArrayList();
+    @Nullable private String[] lastFilterParts;
+
+    /**
+     * @param stringsProvider returns the strings to match the search filter against for each entry
+     * @param emptyEntryMatcher returns whether an entry without any search strings matches any filter
+     */
+    public ConfigSearchIndex(List<ConfigOptionWrapper> wrappers,
+                             Function<ConfigOptionWrapper, List<String>> stringsProvider,
+                             Predicate<ConfigOptionWrapper> emptyEntryMatcher)
+    {
+        final int size = wrappers.size();
+
+        this.wrappers = wrappers.toArray(new ConfigOptionWrapper[0]);
+        this.searchTexts = new String[size];
+        this.emptyEntryMatches = new boolean[size];
+        this.keybinds = new IKeybind[size];
+        this.keysTexts = new String[size];
+        this.keysHashes = new int[size];
+        this.modifiedStates = new boolean[size];
+
+        for (int i = 0; i < size; ++i)
+        {
+            ConfigOptionWrapper wrapper = this.wrappers[i];
+            List<String> strings = stringsProvider.apply(wrapper);
+
+            if (strings.isEmpty())
+            {
+                this.emptyEntryMatches[i] = emptyEntryMatcher.test(wrapper);
+            }
+            else
+            {
+                // The parts are separated by a character that can't be typed into the search field,
+                // so that a match can't span over two parts
+                this.searchTexts[i] = String.join("\n", strings).toLowerCase();
+            }
+
+            if (wrapper.getConfig() instanceof IHotkey hotkey)
+            {
+                this.keybinds[i] = hotkey.getKeybind();
+            }
+        }
+
+        this.updateDynamicData();
+    }
+
+    /**
+     * @return true if this index was built for the same entries as in the given collection.
+     *         The collection itself can be a different instance, since the GUIs usually
+     *         create new wrappers every time.
+     */
+    public boolean isIndexFor(Collection<ConfigOptionWrapper> entries)
+    {
+        if (entries.size() != this.wrappers.length)
+        {
+            return false;
+        }
+
+        int i = 0;
+
+        for (ConfigOptionWrapper wrapper : entries)
+        {
+            ConfigOptionWrapper indexed = this.wrappers[i++];
+
+            if (wrapper != indexed &&
+                (wrapper.getConfig() != indexed.getConfig() || Objects.equals(wrapper.getLabel(), indexed.getLabel()) == false))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds the entries matching the given filter to the output list, in the original order.
+     * @param entries the current entries, which must be the ones this index is for
+     * @param filterText the lower case filter text, where any of the '|' separated parts can match
+     * @param listOut the list to add the matching entries to
+     */
+    public void addMatches(List<ConfigOptionWrapper> entries, String filterText, List<ConfigOptionWrapper> listOut)
+    {
+        String[] parts = filterText.split("\\|");
+        boolean narrowing = this.updateDynamicData() == false && this.isNarrowing(parts);
+        IntArrayList matches = new IntArrayList();
+
+        if (narrowing)
+        {
+            for (int i = 0; i < this.lastMatches.size(); ++i)
+            {
+                int index = this.lastMatches.getInt(i);
+
+                if (this.matches(index, parts))
+                {
+                    matches.add(index);
+                }
+            }
+        }
+        else
+        {
+            for (int index = 0; index < this.wrappers.length; ++index)
+            {
+                if (this.matches(index, parts))
+                {
+                    matches.add(index);
+                }
+            }
+        }
+
+        this.lastMatches.clear();
+        this.lastMatches.addAll(matches);
+        this.lastFilterParts = parts;
+
+        for (int i = 0; i < matches.size(); ++i)
+        {
+            listOut.add(entries.get(matches.getInt(i)));
+        }
+    }
+
+    /**
+     * @return true if every entry matching the new filter parts also matched the previous filter parts,
+     *         ie. each new part contains at least one of the previous parts
+     */
+    private boolean isNarrowing(String[] parts)
+    {
+        if (this.lastFilterParts == null)
+        {
+            return false;
+        }
+
+        for (String part : parts)
+        {
+            boolean found = false;
+
+            for (String lastPart : this.lastFilterParts)
+            {
+                if (part.contains(lastPart))
+                {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (found == false)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean matches(int index, String[] parts)
+    {
+        String text = this.searchTexts[index];
+
+        if (text == null)
+        {
+            return this.emptyEntryMatches[index];
+        }
+
+        String keysText = this.keysTexts[index];
+        boolean modified = this.modifiedStates[index];
+
+        for (String part : parts)
+        {
+            if (text.contains(part) ||
+                (keysText != null && keysText.contains(part)) ||
+                (modified && MODIFIED.contains(part)))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Updates the cached bound keys and modified states
+     * @return true if any of them changed since the last update
+     */
+    private boolean updateDynamicData()
+    {
+        boolean changed = false;
+
+        for (int i = 0; i < this.wrappers.length; ++i)
+        {
+            IKeybind keybind = this.keybinds[i];
+
+            if (keybind != null)
+            {
+                List<Integer> keys = keybind.getKeys();
+                int hash = keys.isEmpty() ? 0 : keys.hashCode();
+
+                if (hash != this.keysHashes[i] || (this.keysTexts[i] == null && keys.isEmpty() == false))
+                {
+                    this.keysHashes[i] = hash;
+                    this.keysTexts[i] = keys.isEmpty() ? null : keybind.getKeysDisplayString().toLowerCase();
+                    changed = true;
+                }
+            }
+
+            IConfigBase config = this.wrappers[i].getConfig();
+
+            if (config instanceof IConfigResettable resettable)
+            {
+                boolean modified = resettable.isModified();
+
+                if (modified != this.modifiedStates[i])
+                {
+                    this.modifiedStates[i] = modified;
+                    changed = true;
+                }
+            }
+        }
+
+        return changed;
+    }
+}
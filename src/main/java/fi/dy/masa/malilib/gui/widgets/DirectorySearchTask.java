@@ -0,0 +1,134 @@
+package fi.dy.masa.malilib.gui.widgets;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+import fi.dy.masa.malilib.MaLiLib;
+import fi.dy.masa.malilib.gui.widgets.WidgetFileBrowserBase.DirectoryEntry;
+
+/**
+ * Runs a recursive, filtered directory search for the file browser on a background thread.
+ * The search itself is done by the given function, which for the file browser is
+ * {@link WidgetFileBrowserBase#addFilteredContents(File, String, List, String, Consumer)}.
+ * The entries the function reports as found are made available via {@link #pollPartialResults(List)},
+ * and once the search has finished, the full results are available via {@link #getResults()}.
+ * Cancelling the task interrupts the search thread, so the search function should check
+ * {@link Thread#isInterrupted()} every now and then.
+ */
+public class DirectorySearchTask
+{
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor((r) -> {
+        Thread thread = new Thread(r, "MaLiLib File Search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File rootDir;
+    private final BiConsumer<List<DirectoryEntry>, Consumer<Collection<DirectoryEntry>>> searchFunction;
+    private final Queue<DirectoryEntry> partialResults = new ConcurrentLinkedQueue<>();
+    @Nullable private volatile List<DirectoryEntry> results;
+    @Nullable private Future<?> future;
+    private volatile boolean cancelled;
+
+    /**
+     * @param rootDir the directory being searched, used for the error message
+     * @param searchFunction adds all the matching entries to the given list, and should also pass them
+     *                       to the given consumer as soon as they are found, to show them before the search finishes.
+     *                       This gets called from the search thread!
+     */
+    public DirectorySearchTask(File rootDir, BiConsumer<List<DirectoryEntry>, Consumer<Collection<DirectoryEntry>>> searchFunction)
+    {
+        this.rootDir = rootDir;
+        this.searchFunction = searchFunction;
+    }
+
+    public DirectorySearchTask start()
+    {
+        this.future = EXECUTOR.submit(this::run);
+        return this;
+    }
+
+    /**
+     * Stops the search as soon as possible. No more results will be made available after this.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+
+        if (this.future != null)
+        {
+            this.future.cancel(true);
+        }
+    }
+
+    public boolean isCancelled()
+    {
+        return this.cancelled;
+    }
+
+    public boolean isFinished()
+    {
+        return this.results != null;
+    }
+
+    /**
+     * Moves the entries found since the previous call to the given list, in the order they were found in
+     * @return true if any entries were added
+     */
+    public boolean pollPartialResults(List<DirectoryEntry> listOut)
+    {
+        boolean added = false;
+        DirectoryEntry entry;
+
+        while ((entry = this.partialResults.poll()) != null)
+        {
+            listOut.add(entry);
+            added = true;
+        }
+
+        return added;
+    }
+
+    /**
+     * @return the full, ordered results, or null if the search hasn't finished yet
+     */
+    @Nullable
+    public List<DirectoryEntry> getResults()
+    {
+        return this.results;
+    }
+
+    private void run()
+    {
+        if (this.cancelled)
+        {
+            return;
+        }
+
+        List<DirectoryEntry> list = new ArrayList<>();
+
+        try
+        {
+            this.searchFunction.accept(list, this.partialResults::addAll);
+        }
+        catch (Exception e)
+        {
+            MaLiLib.logger.warn("DirectorySearchTask: Failed to search the directory '{}'", this.rootDir.getAbsolutePath(), e);
+        }
+
+        if (this.cancelled == false)
+        {
+            this.results = list;
+        }
+    }
+}
@@ -293,6 +293,38 @@ public class WidgetConfigOption extends WidgetConfigOptionBase<ConfigOptionWrapp
         }
     }
 
+    /**
+     * Moves this widget and all of its sub-widgets and the text field to the new row.
+     * The initial values used for the modification checks are kept as they were.
+     */
+    @Override
+    public boolean rebind(int x, int y, int listIndex, boolean isOdd)
+    {
+        int offX = x - this.getX();
+        int offY = y - this.getY();
+
+        for (WidgetBase widget : this.subWidgets)
+        {
+            widget.setPosition(widget.getX() + offX, widget.getY() + offY);
+        }
+
+        if (this.textField != null)
+        {
+            GuiTextFieldGeneric field = this.textField.getTextField();
+            field.setX(field.getX() + offX);
+            field.setY(field.getY() + offY);
+
+            // The list's text fields get collected again when the widgets are re-created
+            this.parent.addTextField(this.textField);
+        }
+
+        this.colorDisplayPosX += offX;
+        this.setPosition(x, y);
+        this.listIndex = listIndex;
+
+        return true;
+    }
+
     protected void addConfigComment(int x, int y, int width, int height, String comment)
     {
         this.addWidget(new WidgetHoverInfo(x, y, width, height, comment));
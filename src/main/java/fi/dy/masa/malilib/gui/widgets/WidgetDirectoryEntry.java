@@ -17,7 +17,7 @@ public class WidgetDirectoryEntry extends WidgetListEntryBase<DirectoryEntry>
     protected final IDirectoryNavigator navigator;
     protected final DirectoryEntry entry;
     protected final IFileBrowserIconProvider iconProvider;
-    protected final boolean isOdd;
+    protected boolean isOdd;
 
     public WidgetDirectoryEntry(int x, int y, int width, int height, boolean isOdd, DirectoryEntry entry,
             int listIndex, IDirectoryNavigator navigator, IFileBrowserIconProvider iconProvider)
@@ -35,6 +35,22 @@ public class WidgetDirectoryEntry extends WidgetListEntryBase<DirectoryEntry>
         return this.entry;
     }
 
+    @Override
+    public boolean rebind(int x, int y, int listIndex, boolean isOdd)
+    {
+        // Sub-classes with sub-widgets would need to move them as well
+        if (this.subWidgets.isEmpty() == false)
+        {
+            return false;
+        }
+
+        this.setPosition(x, y);
+        this.listIndex = listIndex;
+        this.isOdd = isOdd;
+
+        return true;
+    }
+
     @Override
     protected boolean onMouseClickedImpl(int mouseX, int mouseY, int mouseButton)
     {
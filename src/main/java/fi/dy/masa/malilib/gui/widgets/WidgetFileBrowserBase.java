@@ -4,9 +4,11 @@ import java.io.File;
 import java.io.FileFilter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 
 import net.minecraft.client.gui.DrawContext;
@@ -30,6 +32,7 @@ public abstract class WidgetFileBrowserBase extends WidgetListBase<DirectoryEntr
     protected final String browserContext;
     protected final IFileBrowserIconProvider iconProvider;
     @Nullable protected WidgetDirectoryNavigation directoryNavigationWidget;
+    @Nullable protected DirectorySearchTask searchTask;
 
     public WidgetFileBrowserBase(int x, int y, int width, int height,
             IDirectoryCache cache, String browserContext, File defaultDirectory,
@@ -78,6 +81,8 @@ public abstract class WidgetFileBrowserBase extends WidgetListBase<DirectoryEntr
     @Override
     public void drawContents(DrawContext drawContext, int mouseX, int mouseY, float partialTicks)
     {
+        this.updateSearchResults();
+
         // Draw an outline around the entire file browser
         RenderUtils.drawOutlinedBox(this.posX, this.posY, this.browserWidth, this.browserHeight, 0xB0000000, COLOR_HORIZONTAL_BAR);
 
@@ -122,9 +127,17 @@ public abstract class WidgetFileBrowserBase extends WidgetListBase<DirectoryEntr
         this.refreshBrowserEntries();
     }
 
+    @Override
+    public void removed()
+    {
+        super.removed();
+        this.cancelSearch();
+    }
+
     @Override
     protected void refreshBrowserEntries()
     {
+        this.cancelSearch();
         this.listContents.clear();
 
         File dir = this.currentDirectory;
@@ -141,6 +154,7 @@ public abstract class WidgetFileBrowserBase extends WidgetListBase<DirectoryEntr
             }
         }
 
+        this.onListContentsChanged();
         this.reCreateListEntryWidgets();
     }
 
@@ -159,19 +173,106 @@ public abstract class WidgetFileBrowserBase extends WidgetListBase<DirectoryEntr
         this.listContents.addAll(list);
     }
 
+    /**
+     * Whether the recursive search for the filter text should be run on a background thread.
+     * If this returns true, then {@link #addFilteredContents(File, String, List, String, Consumer)},
+     * {@link #addMatchingEntriesToList(FileFilter, File, List, String, String)}, {@link #getSubDirectories(File)}
+     * and {@link #matchesFilter(String, String)} get called from the search thread,
+     * so any overrides of them must not touch any client or GUI state.
+     */
+    protected boolean useBackgroundSearch()
+    {
+        return false;
+    }
+
+    /**
+     * Recursively adds the entries matching the current filter text to the list.
+     * If {@link #useBackgroundSearch()} returns true, this only starts the search on a background thread,
+     * and the results get added to the list as they are found, see {@link #updateSearchResults()}.
+     */
     protected void addFilteredContents(File dir)
     {
         String filterText = this.widgetSearchBar.getFilter();
-        List<DirectoryEntry> list = new ArrayList<>();
-        this.addFilteredContents(dir, filterText, list, null);
-        this.listContents.addAll(list);
+
+        if (this.useBackgroundSearch())
+        {
+            this.searchTask = new DirectorySearchTask(dir, (list, partialResults) -> this.addFilteredContents(dir, filterText, list, null, partialResults)).start();
+        }
+        else
+        {
+            List<DirectoryEntry> list = new ArrayList<>();
+            this.addFilteredContents(dir, filterText, list, null);
+            this.listContents.addAll(list);
+        }
+    }
+
+    /**
+     * Adds any new results from the running search to the list,
+     * and replaces them with the fully sorted results once the search has finished
+     */
+    protected void updateSearchResults()
+    {
+        DirectorySearchTask task = this.searchTask;
+
+        if (task == null)
+        {
+            return;
+        }
+
+        List<DirectoryEntry> results = task.getResults();
+
+        if (results != null)
+        {
+            this.searchTask = null;
+            this.listContents.clear();
+            this.listContents.addAll(results);
+            this.onListContentsChanged();
+            this.reCreateListEntryWidgets();
+        }
+        else if (task.pollPartialResults(this.listContents))
+        {
+            this.invalidateEntryHeights();
+            this.reCreateListEntryWidgets();
+        }
+    }
+
+    protected void cancelSearch()
+    {
+        if (this.searchTask != null)
+        {
+            this.searchTask.cancel();
+            this.searchTask = null;
+        }
+    }
+
+    public boolean isSearching()
+    {
+        return this.searchTask != null;
     }
 
     protected void addFilteredContents(File dir, String filterText, List<DirectoryEntry> listOut, @Nullable String prefix)
     {
+        this.addFilteredContents(dir, filterText, listOut, prefix, null);
+    }
+
+    /**
+     * Recursively adds the entries matching the filter text to the list.
+     * If partialResults is not null, then the matching entries of each directory
+     * are also passed to it as soon as that directory has been searched.
+     * When this is run on the search thread, the search is stopped by interrupting the thread.
+     */
+    protected void addFilteredContents(File dir, String filterText, List<DirectoryEntry> listOut,
+                                       @Nullable String prefix, @Nullable Consumer<Collection<DirectoryEntry>> partialResults)
+    {
+        if (Thread.currentThread().isInterrupted())
+        {
+            return;
+        }
+
         List<DirectoryEntry> list = new ArrayList<>();
         this.addMatchingEntriesToList(this.getDirectoryFilter(), dir, list, filterText, prefix);
         Collections.sort(list);
+        this.publishPartialResults(list, partialResults);
         listOut.addAll(list);
         list.clear();
 
@@ -188,7 +289,16 @@ public abstract class WidgetFileBrowserBase extends WidgetListBase<DirectoryEntr
                 pre = subDir.getName() + "/";
             }
 
-            this.addFilteredContents(subDir, filterText, list, pre);
+            // Without partial results, recurse through the old method, so that any overrides of it still get called
+            if (partialResults != null)
+            {
+                this.addFilteredContents(subDir, filterText, list, pre, partialResults);
+            }
+            else
+            {
+                this.addFilteredContents(subDir, filterText, list, pre);
+            }
+
             Collections.sort(list);
             listOut.addAll(list);
             list.clear();
@@ -196,12 +306,29 @@ public abstract class WidgetFileBrowserBase extends WidgetListBase<DirectoryEntr
 
         this.addMatchingEntriesToList(this.getFileFilter(), dir, list, filterText, prefix);
         Collections.sort(list);
+        this.publishPartialResults(list, partialResults);
         listOut.addAll(list);
     }
 
+    private void publishPartialResults(List<DirectoryEntry> list, @Nullable Consumer<Collection<DirectoryEntry>> partialResults)
+    {
+        if (partialResults != null && list.isEmpty() == false)
+        {
+            // Pass a copy, the list gets re-used by the caller
+            partialResults.accept(new ArrayList<>(list));
+        }
+    }
+
     protected void addMatchingEntriesToList(FileFilter filter, File dir, List<DirectoryEntry> list, @Nullable String filterText, @Nullable String displayNamePrefix)
     {
-        for (File file : dir.listFiles(filter))
+        File[] files = dir.listFiles(filter);
+
+        if (files == null)
+        {
+            return;
+        }
+
+        for (File file : files)
         {
             String name = FileUtils.getNameWithoutExtension(file.getName().toLowerCase());
 
@@ -215,8 +342,14 @@ public abstract class WidgetFileBrowserBase extends WidgetListBase<DirectoryEntr
     protected List<File> getSubDirectories(File dir)
     {
         List<File> dirs = new ArrayList<>();
+        File[] files = dir.listFiles(DIRECTORY_FILTER);
+
+        if (files == null)
+        {
+            return dirs;
+        }
 
-        for (File file : dir.listFiles(DIRECTORY_FILTER))
+        for (File file : files)
         {
             dirs.add(file);
         }
@@ -8,6 +8,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.util.math.MathHelper;
@@ -24,6 +25,7 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
     protected final List<WIDGET> listWidgets = new ArrayList<>();
     protected final GuiScrollBar scrollBar = new GuiScrollBar();
     protected final Set<TYPE> selectedEntries = new HashSet<>();
+    private final Reference2ObjectOpenHashMap<TYPE, WIDGET> reusableWidgets = new Reference2ObjectOpenHashMap<>();
     protected final int posX;
     protected final int posY;
     protected int totalWidth;
@@ -44,6 +46,10 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
     protected boolean allowKeyboardNavigation;
     protected boolean allowMultiSelection;
     protected boolean shouldSortList;
+    private int[] entryHeightSums = new int[] { 0 };
+    private boolean entryHeightsDirty = true;
+    private boolean canReuseWidgets;
+    private volatile FilterParts lastFilterParts = new FilterParts("", new String[] { "" });
     @Nullable private TYPE lastSelectedEntry;
     @Nullable private ISelectionListener<TYPE> selectionListener;
     @Nullable protected WidgetSearchBar widgetSearchBar;
@@ -294,6 +300,7 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
             Collections.sort(this.listContents, this.getComparator());
         }
 
+        this.onListContentsChanged();
         this.reCreateListEntryWidgets();
     }
 
@@ -344,7 +351,7 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
             return true;
         }
 
-        for (String filter : filterText.split("\\|"))
+        for (String filter : this.getFilterParts(filterText))
         {
             if (entryString.contains(filter))
             {
@@ -355,6 +362,24 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
         return false;
     }
 
+    /**
+     * Returns the '|' separated parts of the given filter text. The result of the last split is cached,
+     * since the same filter gets matched against every entry.
+     * This can also get called from the file browser's search thread.
+     */
+    protected String[] getFilterParts(String filterText)
+    {
+        FilterParts parts = this.lastFilterParts;
+
+        if (filterText.equals(parts.text()) == false)
+        {
+            parts = new FilterParts(filterText, filterText.split("\\|"));
+            this.lastFilterParts = parts;
+        }
+
+        return parts.parts();
+    }
+
     protected List<String> getEntryStringsForFilter(TYPE entry)
     {
         return Collections.emptyList();
@@ -397,14 +422,7 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
 
         WidgetBase hovered = null;
         int scrollbarHeight = this.browserHeight - this.browserEntriesOffsetY - 8;
-        int totalHeight = 0;
-
-        for (TYPE listContent : this.listContents)
-        {
-            totalHeight += this.getBrowserEntryHeightFor(listContent);
-        }
-
-        totalHeight = Math.max(totalHeight, scrollbarHeight);
+        int totalHeight = Math.max(this.getTotalEntryHeight(), scrollbarHeight);
 
         int scrollBarX = this.posX + this.browserWidth - 9;
         int scrollBarY = this.browserEntriesStartY + this.browserEntriesOffsetY;
@@ -451,6 +469,8 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
         this.browserEntriesStartX = this.posX + this.browserPaddingX;
         this.browserEntriesStartY = this.posY + this.browserPaddingY;
         this.browserEntryWidth = this.browserWidth - 14;
+        // The entry widgets were created for the old size
+        this.canReuseWidgets = false;
     }
 
     protected int getBrowserEntryHeightFor(@Nullable TYPE type)
@@ -458,8 +478,115 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
         return this.browserEntryHeight;
     }
 
+    /**
+     * Marks the cached entry heights as stale, and prevents the current entry widgets
+     * from being reused for the new contents. The current widgets are still kept until they get
+     * re-created, so that any pending changes in them can be checked and applied first.
+     * Call this after modifying the listContents outside of {@link #refreshBrowserEntries()}.
+     */
+    protected void onListContentsChanged()
+    {
+        this.invalidateEntryHeights();
+        this.canReuseWidgets = false;
+    }
+
+    /**
+     * Marks the cached entry heights as stale. Call this if the height of any entry changes
+     * without the list contents changing.
+     */
+    protected void invalidateEntryHeights()
+    {
+        this.entryHeightsDirty = true;
+    }
+
+    /**
+     * Returns the prefix sums of the entry heights, so that index i contains
+     * the total height of the entries before the listContents index i.
+     * The sums are only re-calculated when the list contents change.
+     */
+    protected int[] getEntryHeightSums()
+    {
+        final int numEntries = this.listContents.size();
+
+        if (this.entryHeightsDirty || this.entryHeightSums.length != numEntries + 1)
+        {
+            int[] sums = this.entryHeightSums.length == numEntries + 1 ? this.entryHeightSums : new int[numEntries + 1];
+            int total = 0;
+
+            for (int i = 0; i < numEntries; ++i)
+            {
+                sums[i] = total;
+                total += this.getBrowserEntryHeightFor(this.listContents.get(i));
+            }
+
+            sums[numEntries] = total;
+            this.entryHeightSums = sums;
+            this.entryHeightsDirty = false;
+        }
+
+        return this.entryHeightSums;
+    }
+
+    /**
+     * @return the combined height of all the entries in the list
+     */
+    protected int getTotalEntryHeight()
+    {
+        int[] sums = this.getEntryHeightSums();
+        return sums[sums.length - 1];
+    }
+
+    /**
+     * @return the smallest listContents index from which all the remaining entries
+     *         fit within the given height, ie. the largest useful scroll position
+     */
+    protected int getLastScrollIndexFor(int availableHeight)
+    {
+        int[] sums = this.getEntryHeightSums();
+        final int total = sums[sums.length - 1];
+        int low = 0;
+        int high = sums.length - 1;
+
+        // Binary search for the first index whose remaining height fits
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+
+            if (total - sums[mid] <= availableHeight)
+            {
+                high = mid;
+            }
+            else
+            {
+                low = mid + 1;
+            }
+        }
+
+        return low;
+    }
+
     protected void reCreateListEntryWidgets()
     {
+        // Collect the previous widgets, so that the ones whose entries are still visible
+        // can just be moved to their new rows when scrolling, instead of being re-created
+        this.reusableWidgets.clear();
+
+        if (this.canReuseWidgets)
+        {
+            for (WIDGET widget : this.listWidgets)
+            {
+                TYPE entry = widget.getEntry();
+                int listIndex = widget.getListIndex();
+
+                if (entry != null && listIndex >= 0 && listIndex < this.listContents.size() &&
+                    this.listContents.get(listIndex) == entry)
+                {
+                    this.reusableWidgets.put(entry, widget);
+                }
+            }
+        }
+
+        this.canReuseWidgets = true;
         this.listWidgets.clear();
         this.maxVisibleBrowserEntries = 0;
 
@@ -470,12 +597,14 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
         int y = this.posY + 4 + this.browserEntriesOffsetY;
         int index = this.scrollBar.getValue();
         WIDGET widget = this.createHeaderWidget(x, y, index, usableHeight, usedHeight);
+        int headerHeight = 0;
 
         if (widget != null)
         {
             this.listWidgets.add(widget);
             //this.maxVisibleBrowserEntries++;
 
+            headerHeight = widget.getHeight();
             usedHeight += widget.getHeight();
             y += widget.getHeight();
         }
@@ -496,7 +625,8 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
             y += widget.getHeight();
         }
 
-        this.scrollBar.setMaxValue(this.listContents.size() - this.maxVisibleBrowserEntries);
+        this.reusableWidgets.clear();
+        this.scrollBar.setMaxValue(this.getLastScrollIndexFor(usableHeight - headerHeight));
     }
 
     @Nullable
@@ -510,7 +640,23 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
             return null;
         }
 
-        return this.createListEntryWidget(x, y, listIndex, (listIndex & 0x1) != 0, entry);
+        return this.getOrCreateListEntryWidget(x, y, listIndex, (listIndex & 0x1) != 0, entry);
+    }
+
+    /**
+     * Returns the previous widget of the given entry moved to the new row, if it's still
+     * around from before scrolling and supports being moved, or otherwise creates a new widget.
+     */
+    protected WIDGET getOrCreateListEntryWidget(int x, int y, int listIndex, boolean isOdd, TYPE entry)
+    {
+        WIDGET widget = entry != null ? this.reusableWidgets.remove(entry) : null;
+
+        if (widget != null && widget.rebind(x, y, listIndex, isOdd))
+        {
+            return widget;
+        }
+
+        return this.createListEntryWidget(x, y, listIndex, isOdd, entry);
     }
 
     /**
@@ -634,4 +780,8 @@ public abstract class WidgetListBase<TYPE, WIDGET extends WidgetListEntryBase<TY
     {
         return this.scrollBar;
     }
+
+    private record FilterParts(String text, String[] parts)
+    {
+    }
 }
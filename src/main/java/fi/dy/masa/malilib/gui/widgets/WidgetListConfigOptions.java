@@ -5,21 +5,27 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+
 import fi.dy.masa.malilib.config.ConfigType;
 import fi.dy.masa.malilib.config.IConfigBase;
-import fi.dy.masa.malilib.config.IConfigResettable;
+import fi.dy.masa.malilib.event.InputEventHandler;
 import fi.dy.masa.malilib.gui.GuiConfigsBase;
 import fi.dy.masa.malilib.gui.GuiConfigsBase.ConfigOptionWrapper;
 import fi.dy.masa.malilib.gui.LeftRight;
 import fi.dy.masa.malilib.gui.MaLiLibIcons;
 import fi.dy.masa.malilib.hotkeys.IHotkey;
 import fi.dy.masa.malilib.hotkeys.IKeybind;
+import fi.dy.masa.malilib.hotkeys.IKeybindManager;
 import fi.dy.masa.malilib.util.AlphaNumComparator;
 
 public class WidgetListConfigOptions extends WidgetListConfigOptionsBase<ConfigOptionWrapper, WidgetConfigOption>
 {
     protected final GuiConfigsBase parent;
     protected final WidgetSearchBarConfigs widgetSearchConfigs;
+    @Nullable protected ConfigSearchIndex searchIndex;
 
     public WidgetListConfigOptions(int x, int y, int width, int height, int configWidth, float zLevel, boolean useKeybindSearch, GuiConfigsBase parent)
     {
@@ -54,6 +60,11 @@ public class WidgetListConfigOptions extends WidgetListConfigOptionsBase<ConfigO
         super.reCreateListEntryWidgets();
     }
 
+    /**
+     * Returns the strings that the search index is built from.
+     * These are only fetched when the index gets built, so they should not change while the GUI is open.
+     * The bound keys and the modified status are checked separately by the index on each search.
+     */
     @Override
     protected List<String> getEntryStringsForFilter(ConfigOptionWrapper entry)
     {
@@ -64,6 +75,8 @@ public class WidgetListConfigOptions extends WidgetListConfigOptionsBase<ConfigO
             ArrayList<String> list = new ArrayList<>();
             String name = config.getName();
             String translated = config.getConfigGuiDisplayName();
+            String comment = config.getComment();
+            String modName = this.parent.getModNameForSearch(config);
 
             list.add(name.toLowerCase());
 
@@ -72,9 +85,14 @@ public class WidgetListConfigOptions extends WidgetListConfigOptionsBase<ConfigO
                 list.add(translated.toLowerCase());
             }
 
-            if (config instanceof IConfigResettable && ((IConfigResettable) config).isModified())
+            if (comment != null && comment.isEmpty() == false)
+            {
+                list.add(comment.toLowerCase());
+            }
+
+            if (modName != null && modName.isEmpty() == false)
             {
-                list.add("modified");
+                list.add(modName.toLowerCase());
             }
 
             return list;
@@ -83,20 +101,52 @@ public class WidgetListConfigOptions extends WidgetListConfigOptionsBase<ConfigO
         return Collections.emptyList();
     }
 
+    /**
+     * Returns the search index for the given entries, re-using the previous index
+     * if the entries haven't changed since it was built.
+     * The index is built from {@link #getEntryStringsForFilter(ConfigOptionWrapper)} and
+     * {@link #filterMatchesEmptyEntry(ConfigOptionWrapper)}, and it replaces
+     * {@link #entryMatchesFilter(ConfigOptionWrapper, String)} for the config lists.
+     */
+    protected ConfigSearchIndex getSearchIndex(Collection<ConfigOptionWrapper> entries)
+    {
+        if (this.searchIndex == null || this.searchIndex.isIndexFor(entries) == false)
+        {
+            this.searchIndex = new ConfigSearchIndex(new ArrayList<>(entries), this::getEntryStringsForFilter, this::filterMatchesEmptyEntry);
+        }
+
+        return this.searchIndex;
+    }
+
     @Override
     protected void addFilteredContents(Collection<ConfigOptionWrapper> entries)
     {
-        if (this.widgetSearchConfigs != null)
+        String filterText = this.getFilterText();
+        List<ConfigOptionWrapper> list = entries instanceof List ? (List<ConfigOptionWrapper>) entries : new ArrayList<>(entries);
+        List<ConfigOptionWrapper> matches = new ArrayList<>();
+
+        if (filterText.isEmpty())
+        {
+            matches.addAll(list);
+        }
+        else
+        {
+            this.getSearchIndex(list).addMatches(list, filterText, matches);
+        }
+
+        IKeybind filterKeys = this.widgetSearchConfigs != null ? this.widgetSearchConfigs.getKeybind() : null;
+
+        if (filterKeys != null && filterKeys.getKeys().isEmpty() == false)
         {
-            String filterText = this.widgetSearchConfigs.getFilter();
-            IKeybind filterKeys = this.widgetSearchConfigs.getKeybind();
+            // Get the overlapping hotkeys from the key index, instead of checking every hotkey in the list
+            IKeybindManager manager = InputEventHandler.getKeybindManager();
+            Set<IHotkey> overlapping = new ReferenceOpenHashSet<>(manager.getHotkeysOverlapping(filterKeys));
 
-            for (ConfigOptionWrapper entry : entries)
+            for (ConfigOptionWrapper entry : matches)
             {
-                if ((filterText.isEmpty() || this.entryMatchesFilter(entry, filterText)) &&
-                    (entry.getConfig().getType() != ConfigType.HOTKEY ||
-                     filterKeys.getKeys().size() == 0 ||
-                     ((IHotkey) entry.getConfig()).getKeybind().overlaps(filterKeys)))
+                if (entry.getConfig() == null ||
+                    entry.getConfig().getType() != ConfigType.HOTKEY ||
+                    this.hotkeyOverlaps((IHotkey) entry.getConfig(), filterKeys, overlapping, manager))
                 {
                     this.listContents.add(entry);
                 }
@@ -104,10 +154,21 @@ public class WidgetListConfigOptions extends WidgetListConfigOptionsBase<ConfigO
         }
         else
         {
-            super.addFilteredContents(entries);
+            this.listContents.addAll(matches);
         }
     }
 
+    protected boolean hotkeyOverlaps(IHotkey hotkey, IKeybind filterKeys, Set<IHotkey> overlapping, IKeybindManager manager)
+    {
+        if (overlapping.contains(hotkey))
+        {
+            return true;
+        }
+
+        // Hotkeys that haven't been registered to the manager are not in the index
+        return manager.getCategoryForHotkey(hotkey) == null && hotkey.getKeybind().overlaps(filterKeys);
+    }
+
     @Override
     protected Comparator<ConfigOptionWrapper> getComparator()
     {
@@ -5,7 +5,7 @@ import javax.annotation.Nullable;
 public class WidgetListEntryBase<TYPE> extends WidgetContainer
 {
     @Nullable protected final TYPE entry;
-    protected final int listIndex;
+    protected int listIndex;
 
     public WidgetListEntryBase(int x, int y, int width, int height, @Nullable TYPE entry, int listIndex)
     {
@@ -25,4 +25,16 @@ public class WidgetListEntryBase<TYPE> extends WidgetContainer
     {
         return this.listIndex;
     }
+
+    /**
+     * Moves this widget to a new row, when the list is scrolled and this widget's entry is still visible.
+     * The widget always stays bound to the same entry. Widgets that can move all of their
+     * position or row dependent state (such as sub-widgets) can override this to allow the list
+     * to reuse them instead of creating new widgets.
+     * @return true if this widget was moved, false if the list needs to create a new widget instead
+     */
+    public boolean rebind(int x, int y, int listIndex, boolean isOdd)
+    {
+        return false;
+    }
 }
@@ -0,0 +1,232 @@
+package fi.dy.masa.malilib.hotkeys;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+/**
+ * A reverse index from key codes to all the registered hotkeys (of all mods) that use that key.
+ * This is used by the key search in the config GUIs, and for finding the conflicting hotkeys,
+ * so that only the hotkeys sharing a key need to be compared against each other.
+ * <br>
+ * This gets rebuilt from {@link IKeybindManager#updateUsedKeys()}, and also lazily
+ * whenever the keys of any of the indexed {@link KeybindMulti} have been changed since the last rebuild.
+ * Keybinds that are not registered, like the one in the config GUI search bar, don't affect the index.
+ */
+public class HotkeyIndex
+{
+    private final List<IHotkey> hotkeys = new ArrayList<>();
+    private final List<KeybindCategory> categories = new ArrayList<>();
+    private final Reference2IntOpenHashMap<IHotkey> hotkeyIds = new Reference2IntOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<IntArrayList> hotkeysByKey = new Int2ObjectOpenHashMap<>();
+    private final List<KeybindMulti> trackedKeybinds = new ArrayList<>();
+    private final IntArrayList trackedKeysRevisions = new IntArrayList();
+    private boolean dirty = true;
+
+    public HotkeyIndex()
+    {
+        this.hotkeyIds.defaultReturnValue(-1);
+    }
+
+    /**
+     * Marks the index as needing to be rebuilt, for example when hotkeys are added
+     */
+    public void markDirty()
+    {
+        this.dirty = true;
+    }
+
+    public boolean needsRebuild()
+    {
+        if (this.dirty)
+        {
+            return true;
+        }
+
+        final int count = this.trackedKeybinds.size();
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (this.trackedKeybinds.get(i).getKeysRevision() != this.trackedKeysRevisions.getInt(i))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public void rebuild(List<KeybindCategory> categories)
+    {
+        this.hotkeys.clear();
+        this.categories.clear();
+        this.hotkeyIds.clear();
+        this.hotkeysByKey.clear();
+        this.trackedKeybinds.clear();
+        this.trackedKeysRevisions.clear();
+
+        for (KeybindCategory category : categories)
+        {
+            for (IHotkey hotkey : category.getHotkeys())
+            {
+                // The same hotkey may be listed in multiple categories, only index it once
+                if (this.hotkeyIds.containsKey(hotkey))
+                {
+                    continue;
+                }
+
+                int id = this.hotkeys.size();
+                this.hotkeys.add(hotkey);
+                this.categories.add(category);
+                this.hotkeyIds.put(hotkey, id);
+
+                IKeybind keybind = hotkey.getKeybind();
+
+                for (int keyCode : keybind.getKeys())
+                {
+                    this.hotkeysByKey.computeIfAbsent(keyCode, (k) -> new IntArrayList(2)).add(id);
+                }
+
+                if (keybind instanceof KeybindMulti keybindMulti)
+                {
+                    this.trackedKeybinds.add(keybindMulti);
+                    this.trackedKeysRevisions.add(keybindMulti.getKeysRevision());
+                }
+            }
+        }
+
+        this.dirty = false;
+    }
+
+    /**
+     * @return all the registered hotkeys that currently use the given key
+     */
+    public List<IHotkey> getHotkeysUsingKey(int keyCode)
+    {
+        IntArrayList ids = this.hotkeysByKey.get(keyCode);
+
+        if (ids == null)
+        {
+            return Collections.emptyList();
+        }
+
+        List<IHotkey> list = new ArrayList<>(ids.size());
+
+        for (int i = 0; i < ids.size(); ++i)
+        {
+            list.add(this.hotkeys.get(ids.getInt(i)));
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns all the registered hotkeys whose keybinds overlap the given keys,
+     * in the same sense as {@link IKeybind#overlaps(IKeybind)}.
+     * Only the hotkeys using the first of the given keys need to be checked.
+     */
+    public List<IHotkey> getHotkeysOverlapping(IKeybind keys)
+    {
+        List<Integer> keyCodes = keys.getKeys();
+
+        if (keyCodes.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        IntArrayList ids = this.hotkeysByKey.get(keyCodes.get(0).intValue());
+
+        if (ids == null)
+        {
+            return Collections.emptyList();
+        }
+
+        List<IHotkey> list = new ArrayList<>();
+
+        for (int i = 0; i < ids.size(); ++i)
+        {
+            IHotkey hotkey = this.hotkeys.get(ids.getInt(i));
+
+            if (hotkey.getKeybind().overlaps(keys))
+            {
+                list.add(hotkey);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Finds all the pairs of registered hotkeys whose keybinds overlap, in one pass over the hotkeys.
+     * For each hotkey only the hotkeys using its first key and having at least as many keys are checked,
+     * since a shorter keybind can only overlap a longer one if all of its keys are in the longer one.
+     * @return the conflicting hotkey pairs, each pair listed once
+     */
+    public List<Conflict> getConflicts()
+    {
+        List<Conflict> list = new ArrayList<>();
+        final int count = this.hotkeys.size();
+
+        for (int id = 0; id < count; ++id)
+        {
+            IKeybind keybind = this.hotkeys.get(id).getKeybind();
+            List<Integer> keys = keybind.getKeys();
+
+            if (keys.isEmpty())
+            {
+                continue;
+            }
+
+            IntArrayList ids = this.hotkeysByKey.get(keys.get(0).intValue());
+
+            if (ids == null)
+            {
+                continue;
+            }
+
+            final int size = keys.size();
+
+            for (int i = 0; i < ids.size(); ++i)
+            {
+                int otherId = ids.getInt(i);
+                IKeybind other = this.hotkeys.get(otherId).getKeybind();
+                int otherSize = other.getKeys().size();
+
+                // Pairs of the same length are found from both sides, only check them once
+                if (otherSize < size || (otherSize == size && otherId <= id))
+                {
+                    continue;
+                }
+
+                if (other.overlaps(keybind) || (otherSize == size && keybind.overlaps(other)))
+                {
+                    list.add(new Conflict(this.hotkeys.get(id), this.categories.get(id),
+                                          this.hotkeys.get(otherId), this.categories.get(otherId)));
+                }
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * @return the category the given hotkey was registered in, or null if it's not registered
+     */
+    @Nullable
+    public KeybindCategory getCategory(IHotkey hotkey)
+    {
+        int id = this.hotkeyIds.getInt(hotkey);
+        return id >= 0 ? this.categories.get(id) : null;
+    }
+
+    /**
+     * Two registered hotkeys whose keybinds overlap
+     */
+    public record Conflict(IHotkey hotkey1, KeybindCategory category1, IHotkey hotkey2, KeybindCategory category2)
+    {
+    }
+}
@@ -1,6 +1,8 @@
 package fi.dy.masa.malilib.hotkeys;
 
+import java.util.Collection;
 import java.util.List;
+import javax.annotation.Nullable;
 
 public interface IKeybindManager
 {
@@ -30,6 +32,15 @@ public interface IKeybindManager
      */
     void updateUsedKeys();
 
+    /**
+     * Re-indexes only the given keybinds in the keys -> keybinds map,
+     * after their keys have been changed. This is cheaper than {@link #updateUsedKeys()},
+     * which asks every IKeybindProvider to add all of their keybinds again.
+     * Keybinds that have not been added to the map are ignored.
+     * @param keybinds
+     */
+    void updateUsedKeys(Collection<? extends IKeybind> keybinds);
+
     /**
      * Adds the provided IKeybind to the map of keys -> keybinds,
      * which is used in the input event handler to distribute the events/actions
@@ -47,4 +58,35 @@ public interface IKeybindManager
      * @param hotkeys
      */
     void addHotkeysForCategory(String modName, String keyCategory, List<? extends IHotkey> hotkeys);
+
+    /**
+     * Returns all the registered hotkeys that currently use the given key
+     * @param keyCode
+     * @return
+     */
+    List<IHotkey> getHotkeysUsingKey(int keyCode);
+
+    /**
+     * Returns all the registered hotkeys whose keybinds overlap the given keys,
+     * see {@link IKeybind#overlaps(IKeybind)}
+     * @param keys
+     * @return
+     */
+    List<IHotkey> getHotkeysOverlapping(IKeybind keys);
+
+    /**
+     * Returns all the pairs of registered hotkeys whose keybinds overlap each other,
+     * across all the mods using this library
+     * @return
+     */
+    List<HotkeyIndex.Conflict> getHotkeyConflicts();
+
+    /**
+     * Returns the category the given hotkey has been registered in
+     * via {@link #addHotkeysForCategory(String, String, List)}
+     * @param hotkey
+     * @return the category, or null if the hotkey has not been registered
+     */
+    @Nullable
+    KeybindCategory getCategoryForHotkey(IHotkey hotkey);
 }
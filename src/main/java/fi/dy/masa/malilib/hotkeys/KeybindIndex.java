@@ -0,0 +1,316 @@
+package fi.dy.masa.malilib.hotkeys;
+
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+/**
+ * A compiled lookup structure for the registered keybinds.
+ * The key codes used by the keybinds are interned into small bit positions,
+ * and each keybind gets a precomputed key mask and key sequence, so that
+ * checking the keybinds affected by a key event doesn't need to do any
+ * list scans or allocate anything.
+ * This gets rebuilt from {@link IKeybindManager#updateUsedKeys()}.
+ */
+public class KeybindIndex
+{
+    private static final CompiledKeybind[] EMPTY = new CompiledKeybind[0];
+
+    private final Int2IntOpenHashMap keyToBit = new Int2IntOpenHashMap();
+    private final Int2ObjectOpenHashMap<CompiledKeybind[]> keybindsByKey = new Int2ObjectOpenHashMap<>();
+    private final Reference2ObjectOpenHashMap<IKeybind, CompiledKeybind> addedKeybinds = new Reference2ObjectOpenHashMap<>();
+    private long[] pressedBits = new long[1];
+    private int[] pressedSequence = new int[8];
+    private int pressedCount;
+
+    public KeybindIndex()
+    {
+        this.keyToBit.defaultReturnValue(-1);
+    }
+
+    public void clear()
+    {
+        this.keyToBit.clear();
+        this.keybindsByKey.clear();
+        this.addedKeybinds.clear();
+        this.pressedBits = new long[1];
+        this.pressedCount = 0;
+    }
+
+    /**
+     * Adds the given keybind to the index, under each of its currently set keys.
+     * @param keybind
+     */
+    public void addKeybind(IKeybind keybind)
+    {
+        if (this.addedKeybinds.containsKey(keybind))
+        {
+            return;
+        }
+
+        List<Integer> keys = keybind.getKeys();
+        final int count = keys.size();
+        int[] sequence = new int[count];
+        int maxBit = 0;
+
+        for (int i = 0; i < count; ++i)
+        {
+            int bit = this.getOrCreateBit(keys.get(i));
+            sequence[i] = bit;
+            maxBit = Math.max(maxBit, bit);
+        }
+
+        long[] mask = new long[(maxBit >> 6) + 1];
+
+        for (int bit : sequence)
+        {
+            mask[bit >> 6] |= 1L << (bit & 63);
+        }
+
+        int[] keyCodes = new int[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            keyCodes[i] = keys.get(i);
+        }
+
+        CompiledKeybind compiled = new CompiledKeybind(keybind, mask, sequence, keyCodes);
+        this.addedKeybinds.put(keybind, compiled);
+
+        for (int keyCode : keyCodes)
+        {
+            CompiledKeybind[] arr = this.keybindsByKey.get(keyCode);
+            arr = arr != null ? Arrays.copyOf(arr, arr.length + 1) : new CompiledKeybind[1];
+            arr[arr.length - 1] = compiled;
+            this.keybindsByKey.put(keyCode, arr);
+        }
+    }
+
+    /**
+     * Re-indexes the given keybind after its keys have been changed.
+     * Keybinds that have not been added to the index are ignored.
+     * @param keybind
+     * @return true if the keybind was in the index
+     */
+    public boolean updateKeybind(IKeybind keybind)
+    {
+        CompiledKeybind old = this.addedKeybinds.remove(keybind);
+
+        if (old == null)
+        {
+            return false;
+        }
+
+        for (int keyCode : old.keyCodes)
+        {
+            CompiledKeybind[] arr = this.keybindsByKey.get(keyCode);
+
+            if (arr == null)
+            {
+                continue;
+            }
+
+            CompiledKeybind[] newArr = new CompiledKeybind[arr.length];
+            int index = 0;
+
+            for (CompiledKeybind compiled : arr)
+            {
+                if (compiled != old)
+                {
+                    newArr[index++] = compiled;
+                }
+            }
+
+            if (index == 0)
+            {
+                this.keybindsByKey.remove(keyCode);
+            }
+            else if (index != arr.length)
+            {
+                this.keybindsByKey.put(keyCode, Arrays.copyOf(newArr, index));
+            }
+        }
+
+        this.addKeybind(keybind);
+
+        return true;
+    }
+
+    private int getOrCreateBit(int keyCode)
+    {
+        int bit = this.keyToBit.get(keyCode);
+
+        if (bit < 0)
+        {
+            bit = this.keyToBit.size();
+            this.keyToBit.put(keyCode, bit);
+
+            if ((bit >> 6) >= this.pressedBits.length)
+            {
+                this.pressedBits = Arrays.copyOf(this.pressedBits, (bit >> 6) + 1);
+            }
+        }
+
+        return bit;
+    }
+
+    /**
+     * Returns the compiled keybinds that use the given key.
+     * The returned array must not be modified.
+     * @param keyCode
+     * @return
+     */
+    public CompiledKeybind[] getKeybindsForKey(int keyCode)
+    {
+        CompiledKeybind[] arr = this.keybindsByKey.get(keyCode);
+        return arr != null ? arr : EMPTY;
+    }
+
+    /**
+     * Updates the pressed state of all the keybinds using the given key.
+     * @param keyCode
+     * @return true if further processing of the key event should be cancelled
+     */
+    public boolean updateKeybindsForKey(int keyCode)
+    {
+        CompiledKeybind[] keybinds = this.keybindsByKey.get(keyCode);
+
+        if (keybinds == null)
+        {
+            return false;
+        }
+
+        this.syncPressedKeys();
+
+        boolean cancel = false;
+
+        for (CompiledKeybind compiled : keybinds)
+        {
+            // Note: this has to get called for key releases too, to reset the state
+            cancel |= compiled.updateIsPressed(this);
+        }
+
+        return cancel;
+    }
+
+    private void syncPressedKeys()
+    {
+        final int count = KeybindMulti.getPressedKeyCount();
+
+        if (count > this.pressedSequence.length)
+        {
+            this.pressedSequence = new int[Math.max(count, this.pressedSequence.length * 2)];
+        }
+
+        Arrays.fill(this.pressedBits, 0L);
+
+        for (int i = 0; i < count; ++i)
+        {
+            int bit = this.keyToBit.get(KeybindMulti.getPressedKey(i));
+            this.pressedSequence[i] = bit;
+
+            if (bit >= 0)
+            {
+                this.pressedBits[bit >> 6] |= 1L << (bit & 63);
+            }
+        }
+
+        this.pressedCount = count;
+    }
+
+    /**
+     * Checks if the currently pressed keys match the given compiled keybind.
+     * This follows the same rules as the list based matching in
+     * {@link KeybindMulti#updateIsPressed()}.
+     */
+    boolean matches(CompiledKeybind compiled, KeybindSettings settings)
+    {
+        final int[] sequence = compiled.sequence;
+        final long[] mask = compiled.mask;
+        final int sizeRequired = sequence.length;
+        final int sizePressed = this.pressedCount;
+
+        if (sizeRequired == 0 || sizePressed < sizeRequired ||
+            (settings.getAllowExtraKeys() == false && sizePressed != sizeRequired))
+        {
+            return false;
+        }
+
+        for (int i = 0; i < mask.length; ++i)
+        {
+            if ((this.pressedBits[i] & mask[i]) != mask[i])
+            {
+                return false;
+            }
+        }
+
+        if (settings.isOrderSensitive() == false)
+        {
+            return true;
+        }
+
+        int start = 0;
+
+        while (this.pressedSequence[start] != sequence[0])
+        {
+            ++start;
+        }
+
+        // Without any extra keys being held, the sequence must match exactly
+        if (start > 0 && sizePressed == sizeRequired)
+        {
+            return false;
+        }
+
+        // The rest of the keys must directly follow the first key
+        for (int i = 1; i < sizeRequired && start + i < sizePressed; ++i)
+        {
+            if (this.pressedSequence[start + i] != sequence[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public static class CompiledKeybind
+    {
+        private final IKeybind keybind;
+        @Nullable private final KeybindMulti keybindMulti;
+        private final int keysRevision;
+        private final long[] mask;
+        private final int[] sequence;
+        private final int[] keyCodes;
+
+        private CompiledKeybind(IKeybind keybind, long[] mask, int[] sequence, int[] keyCodes)
+        {
+            this.keybind = keybind;
+            this.keybindMulti = keybind instanceof KeybindMulti ? (KeybindMulti) keybind : null;
+            this.keysRevision = this.keybindMulti != null ? this.keybindMulti.getKeysRevision() : 0;
+            this.mask = mask;
+            this.sequence = sequence;
+            this.keyCodes = keyCodes;
+        }
+
+        public IKeybind getKeybind()
+        {
+            return this.keybind;
+        }
+
+        private boolean updateIsPressed(KeybindIndex index)
+        {
+            // Fall back to the keybind's own matching if the keys have been
+            // changed after the index was built, or for other implementations
+            if (this.keybindMulti == null || this.keybindMulti.getKeysRevision() != this.keysRevision)
+            {
+                return this.keybind.updateIsPressed();
+            }
+
+            return this.keybindMulti.updateIsPressed(index, this);
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package fi.dy.masa.malilib.hotkeys;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import org.lwjgl.glfw.GLFW;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.option.KeyBinding;
@@ -21,13 +20,14 @@ import fi.dy.masa.malilib.util.KeyCodes;
 
 public class KeybindMulti implements IKeybind
 {
-    private static final ArrayList<Integer> PRESSED_KEYS = new ArrayList<>();
+    private static final PressedKeyTracker PRESSED_KEYS = new PressedKeyTracker();
     private static int triggeredCount;
 
     private final String defaultStorageString;
     private final KeybindSettings defaultSettings;
-    private List<Integer> keyCodes = new ArrayList<>(4);
+    private final IntArrayList keyCodes = new IntArrayList(4);
     private KeybindSettings settings;
+    private int keysRevision;
     private boolean pressed;
     private boolean pressedLast;
     private int heldTime;
@@ -88,30 +88,64 @@ public class KeybindMulti implements IKeybind
     @Override
     public boolean updateIsPressed()
     {
-        if (this.keyCodes.isEmpty() ||
-            (this.settings.getContext() != KeybindSettings.Context.ANY &&
-            ((this.settings.getContext() == KeybindSettings.Context.INGAME) != (GuiUtils.getCurrentScreen() == null))))
+        if (this.isActiveInCurrentContext() == false)
         {
             this.pressed = false;
             return false;
         }
 
+        return this.updatePressedState(this.pressedKeysMatch());
+    }
+
+    /**
+     * NOT PUBLIC API - DO NOT CALL FROM MOD CODE!!!
+     * Updates the pressed state using the pre-compiled key mask and sequence from the keybind index.
+     */
+    boolean updateIsPressed(KeybindIndex index, KeybindIndex.CompiledKeybind compiled)
+    {
+        if (this.isActiveInCurrentContext() == false)
+        {
+            this.pressed = false;
+            return false;
+        }
+
+        return this.updatePressedState(index.matches(compiled, this.settings));
+    }
+
+    private boolean isActiveInCurrentContext()
+    {
+        return this.keyCodes.isEmpty() == false &&
+               (this.settings.getContext() == KeybindSettings.Context.ANY ||
+               ((this.settings.getContext() == KeybindSettings.Context.INGAME) == (GuiUtils.getCurrentScreen() == null)));
+    }
+
+    private boolean pressedKeysMatch()
+    {
         boolean allowExtraKeys = this.settings.getAllowExtraKeys();
         boolean allowOutOfOrder = this.settings.isOrderSensitive() == false;
-        boolean pressedLast = this.pressed;
         final int sizePressed = PRESSED_KEYS.size();
         final int sizeRequired = this.keyCodes.size();
+        boolean pressed = false;
 
         if (sizePressed >= sizeRequired && (allowExtraKeys || sizePressed == sizeRequired))
         {
             int keyCodeIndex = 0;
-            this.pressed = PRESSED_KEYS.containsAll(this.keyCodes);
+            pressed = true;
+
+            for (int i = 0; i < sizeRequired; ++i)
+            {
+                if (PRESSED_KEYS.contains(this.keyCodes.getInt(i)) == false)
+                {
+                    pressed = false;
+                    break;
+                }
+            }
 
             for (int i = 0; i < sizePressed; ++i)
             {
-                Integer keyCodeObj = PRESSED_KEYS.get(i);
+                int keyCode = PRESSED_KEYS.get(i);
 
-                if (this.keyCodes.get(keyCodeIndex).equals(keyCodeObj))
+                if (this.keyCodes.getInt(keyCodeIndex) == keyCode)
                 {
                     // Fully matched keybind
                     if (++keyCodeIndex >= sizeRequired)
@@ -120,21 +154,25 @@ public class KeybindMulti implements IKeybind
                     }
                 }
                 else if ((allowOutOfOrder == false && (keyCodeIndex > 0 || sizePressed == sizeRequired)) ||
-                         (this.keyCodes.contains(keyCodeObj) == false && allowExtraKeys == false))
+                         (this.keyCodes.contains(keyCode) == false && allowExtraKeys == false))
                 {
                     /*
                     System.out.printf("km fail: key: %s, ae: %s, aoo: %s, cont: %s, keys: %s, pressed: %s, triggeredCount: %d\n",
-                            keyCodeObj, allowExtraKeys, allowOutOfOrder, this.keyCodes.contains(keyCodeObj), this.keyCodes, pressedKeys, triggeredCount);
+                            keyCode, allowExtraKeys, allowOutOfOrder, this.keyCodes.contains(keyCode), this.keyCodes, pressedKeys, triggeredCount);
                     */
-                    this.pressed = false;
+                    pressed = false;
                     break;
                 }
             }
         }
-        else
-        {
-            this.pressed = false;
-        }
+
+        return pressed;
+    }
+
+    private boolean updatePressedState(boolean pressed)
+    {
+        boolean pressedLast = this.pressed;
+        this.pressed = pressed;
 
         KeyAction activateOn = this.settings.getActivateOn();
 
@@ -200,6 +238,7 @@ public class KeybindMulti implements IKeybind
     public void clearKeys()
     {
         this.keyCodes.clear();
+        this.onKeysChanged();
         this.pressed = false;
         this.heldTime = 0;
     }
@@ -210,6 +249,7 @@ public class KeybindMulti implements IKeybind
         if (this.keyCodes.contains(keyCode) == false)
         {
             this.keyCodes.add(keyCode);
+            this.onKeysChanged();
         }
     }
 
@@ -227,7 +267,10 @@ public class KeybindMulti implements IKeybind
     @Override
     public void removeKey(int keyCode)
     {
-        this.keyCodes.remove(keyCode);
+        if (this.keyCodes.rem(keyCode))
+        {
+            this.onKeysChanged();
+        }
     }
 
     @Override
@@ -236,6 +279,21 @@ public class KeybindMulti implements IKeybind
         return this.keyCodes;
     }
 
+    /**
+     * Returns a counter that changes every time the keys of this keybind are modified.
+     * This is used by {@link KeybindIndex} to detect stale compiled keybinds,
+     * and by {@link HotkeyIndex} to detect when it needs to be rebuilt.
+     */
+    int getKeysRevision()
+    {
+        return this.keysRevision;
+    }
+
+    private void onKeysChanged()
+    {
+        this.keysRevision++;
+    }
+
     @Override
     public String getKeysDisplayString()
     {
@@ -287,7 +345,7 @@ public class KeybindMulti implements IKeybind
                 sb.append(",");
             }
 
-            int keyCode = this.keyCodes.get(i).intValue();
+            int keyCode = this.keyCodes.getInt(i);
             String name = getStorageStringForKeyCode(keyCode);
 
             if (name != null)
@@ -330,7 +388,7 @@ public class KeybindMulti implements IKeybind
     @Override
     public boolean matches(int keyCode)
     {
-        return this.keyCodes.size() == 1 && this.keyCodes.get(0) == keyCode;
+        return this.keyCodes.size() == 1 && this.keyCodes.getInt(0) == keyCode;
     }
 
     public static int getKeyCode(KeyBinding keybind)
@@ -442,24 +500,18 @@ public class KeybindMulti implements IKeybind
     {
         if (keyCode != -1)
         {
-            Integer valObj = keyCode;
             boolean state = action != GLFW.GLFW_RELEASE;
 
             if (state)
             {
-                if (PRESSED_KEYS.contains(valObj) == false)
+                if (PRESSED_KEYS.contains(keyCode) == false && isIgnoredKey(keyCode) == false)
                 {
-                    Collection<Integer> ignored = MaLiLibConfigs.Generic.IGNORED_KEYS.getKeybind().getKeys();
-
-                    if (ignored.size() == 0 || ignored.contains(valObj) == false)
-                    {
-                        PRESSED_KEYS.add(valObj);
-                    }
+                    PRESSED_KEYS.add(keyCode);
                 }
             }
             else
             {
-                PRESSED_KEYS.remove(valObj);
+                PRESSED_KEYS.remove(keyCode);
             }
         }
 
@@ -469,20 +521,34 @@ public class KeybindMulti implements IKeybind
         }
     }
 
+    private static boolean isIgnoredKey(int keyCode)
+    {
+        List<Integer> ignored = MaLiLibConfigs.Generic.IGNORED_KEYS.getKeybind().getKeys();
+
+        if (ignored.isEmpty())
+        {
+            return false;
+        }
+
+        // Avoid boxing the key code for the common case
+        if (ignored instanceof IntList list)
+        {
+            return list.contains(keyCode);
+        }
+
+        return ignored.contains(keyCode);
+    }
+
     /**
      * NOT PUBLIC API - DO NOT CALL FROM MOD CODE!!!
      */
     public static void reCheckPressedKeys()
     {
-        Iterator<Integer> iter = PRESSED_KEYS.iterator();
-
-        while (iter.hasNext())
+        for (int i = PRESSED_KEYS.size() - 1; i >= 0; --i)
         {
-            int keyCode = iter.next().intValue();
-
-            if (isKeyDown(keyCode) == false)
+            if (isKeyDown(PRESSED_KEYS.get(i)) == false)
             {
-                iter.remove();
+                PRESSED_KEYS.removeAt(i);
             }
         }
 
@@ -518,10 +584,11 @@ public class KeybindMulti implements IKeybind
         if (PRESSED_KEYS.isEmpty() == false)
         {
             StringBuilder sb = new StringBuilder(128);
-            int i = 0;
 
-            for (int key : PRESSED_KEYS)
+            for (int i = 0; i < PRESSED_KEYS.size(); ++i)
             {
+                int key = PRESSED_KEYS.get(i);
+
                 if (i > 0)
                 {
                     sb.append(" + ");
@@ -533,8 +600,6 @@ public class KeybindMulti implements IKeybind
                 {
                     sb.append(String.format("%s (%d)", name, key));
                 }
-
-                i++;
             }
 
             return sb.toString();
@@ -549,6 +614,16 @@ public class KeybindMulti implements IKeybind
         return KeyCodes.getNameForKey(keyCode);
     }
 
+    static int getPressedKeyCount()
+    {
+        return PRESSED_KEYS.size();
+    }
+
+    static int getPressedKey(int index)
+    {
+        return PRESSED_KEYS.get(index);
+    }
+
     public static int getTriggeredCount()
     {
         return triggeredCount;
@@ -0,0 +1,139 @@
+package fi.dy.masa.malilib.hotkeys;
+
+import java.util.Arrays;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * An int-specialized, allocation-free tracker for the currently pressed keys.
+ * The keys are kept in the order they were pressed in, and membership checks
+ * use a bitset over the GLFW key space, including the mouse buttons
+ * which are offset by -100.
+ */
+public class PressedKeyTracker
+{
+    private static final int KEY_OFFSET = 100;
+    private static final int KEY_SPACE_SIZE = GLFW.GLFW_KEY_LAST + 1 + KEY_OFFSET;
+
+    private final long[] membership = new long[(KEY_SPACE_SIZE + 63) >> 6];
+    private int[] keys = new int[16];
+    private int size;
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the key at the given index, in the order the keys were pressed in
+     * @param index
+     * @return
+     */
+    public int get(int index)
+    {
+        return this.keys[index];
+    }
+
+    public boolean contains(int keyCode)
+    {
+        int bit = keyCode + KEY_OFFSET;
+
+        if (bit >= 0 && bit < KEY_SPACE_SIZE)
+        {
+            return (this.membership[bit >> 6] & (1L << (bit & 63))) != 0;
+        }
+
+        return this.indexOf(keyCode) >= 0;
+    }
+
+    /**
+     * Adds the key to the end of the pressed keys, if it's not already pressed
+     * @param keyCode
+     * @return true if the key was added
+     */
+    public boolean add(int keyCode)
+    {
+        if (this.contains(keyCode))
+        {
+            return false;
+        }
+
+        if (this.size >= this.keys.length)
+        {
+            this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+        }
+
+        this.keys[this.size++] = keyCode;
+        this.setMember(keyCode, true);
+
+        return true;
+    }
+
+    /**
+     * Removes the key, keeping the order of the remaining keys
+     * @param keyCode
+     * @return true if the key was removed
+     */
+    public boolean remove(int keyCode)
+    {
+        int index = this.indexOf(keyCode);
+
+        if (index < 0)
+        {
+            return false;
+        }
+
+        this.removeAt(index);
+
+        return true;
+    }
+
+    public void removeAt(int index)
+    {
+        int keyCode = this.keys[index];
+
+        System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+        --this.size;
+        this.setMember(keyCode, false);
+    }
+
+    public void clear()
+    {
+        Arrays.fill(this.membership, 0L);
+        this.size = 0;
+    }
+
+    private int indexOf(int keyCode)
+    {
+        for (int i = 0; i < this.size; ++i)
+        {
+            if (this.keys[i] == keyCode)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void setMember(int keyCode, boolean member)
+    {
+        int bit = keyCode + KEY_OFFSET;
+
+        if (bit >= 0 && bit < KEY_SPACE_SIZE)
+        {
+            if (member)
+            {
+                this.membership[bit >> 6] |= 1L << (bit & 63);
+            }
+            else
+            {
+                this.membership[bit >> 6] &= ~(1L << (bit & 63));
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package fi.dy.masa.malilib.interfaces;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import net.minecraft.inventory.Inventory;
+
+import fi.dy.masa.malilib.util.ItemType;
+
+public interface IInventoryCountListener
+{
+    /**
+     * Called when the item counts of a tracked inventory have changed.
+     * The deltas map is only valid during this call, so copy it if you need to keep it.
+     * @param inventory the tracked inventory
+     * @param deltas the change in the count of each item type that changed.
+     *               The values can be positive or negative, but never zero.
+     */
+    void onItemCountsChanged(Inventory inventory, Object2IntMap<ItemType> deltas);
+}
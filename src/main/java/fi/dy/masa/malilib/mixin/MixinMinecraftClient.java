@@ -1,5 +1,7 @@
 package fi.dy.masa.malilib.mixin;
 
+import java.util.concurrent.CompletableFuture;
+
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.RunArgs;
 import net.minecraft.client.gui.screen.DownloadingTerrainScreen;
@@ -14,11 +16,14 @@ import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import fi.dy.masa.malilib.config.ConfigManager;
 import fi.dy.masa.malilib.event.InitializationHandler;
 import fi.dy.masa.malilib.event.TickHandler;
 import fi.dy.masa.malilib.event.WorldLoadHandler;
 import fi.dy.masa.malilib.hotkeys.KeybindMulti;
+import fi.dy.masa.malilib.render.GuiPreviewBuffers;
 
 @Mixin(MinecraftClient.class)
 public abstract class MixinMinecraftClient
@@ -33,6 +38,26 @@ public abstract class MixinMinecraftClient
         ((InitializationHandler) InitializationHandler.getInstance()).onGameInitDone();
     }
 
+    @Inject(method = "stop()V", at = @At("HEAD"))
+    private void malilib_onStop(CallbackInfo ci)
+    {
+        GuiPreviewBuffers.getInstance().close();
+    }
+
+    @Inject(method = "close()V", at = @At("HEAD"))
+    private void malilib_onClose(CallbackInfo ci)
+    {
+        // Write out any config changes that are still pending. This runs after stop() has
+        // disconnected from the world, so the saves queued by the world unload are also included.
+        ((ConfigManager) ConfigManager.getInstance()).flushPendingSaves();
+    }
+
+    @Inject(method = "reloadResources()Ljava/util/concurrent/CompletableFuture;", at = @At("HEAD"))
+    private void malilib_onReloadResources(CallbackInfoReturnable<CompletableFuture<Void>> cir)
+    {
+        GuiPreviewBuffers.getInstance().close();
+    }
+
     @Inject(method = "startIntegratedServer", at = @At(value = "INVOKE", target = "Lnet/minecraft/util/UserCache;setUseRemote(Z)V",
             shift = At.Shift.BEFORE))
     private void malilib_onStartIntegratedServer(LevelStorage.Session session, ResourcePackManager dataPackManager, SaveLoader saveLoader, boolean newWorld, CallbackInfo ci)
@@ -0,0 +1,42 @@
+package fi.dy.masa.malilib.mixin;
+
+import java.util.List;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
+import net.minecraft.util.collection.DefaultedList;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import fi.dy.masa.malilib.util.InventoryCountTracker;
+
+@Mixin(ScreenHandler.class)
+public abstract class MixinScreenHandler
+{
+    @Shadow @Final public DefaultedList<Slot> slots;
+
+    @Shadow public abstract Slot getSlot(int index);
+
+    @Inject(method = "setStackInSlot", at = @At("TAIL"))
+    private void malilib_onSetStackInSlot(int slot, int revision, ItemStack stack, CallbackInfo ci)
+    {
+        Slot slotObj = this.getSlot(slot);
+        InventoryCountTracker.getInstance().onSlotChanged(slotObj.inventory, slotObj.getIndex());
+    }
+
+    @Inject(method = "updateSlotStacks", at = @At("TAIL"))
+    private void malilib_onUpdateSlotStacks(int revision, List<ItemStack> stacks, ItemStack cursorStack, CallbackInfo ci)
+    {
+        InventoryCountTracker tracker = InventoryCountTracker.getInstance();
+
+        for (Slot slot : this.slots)
+        {
+            tracker.onSlotChanged(slot.inventory, slot.getIndex());
+        }
+    }
+}
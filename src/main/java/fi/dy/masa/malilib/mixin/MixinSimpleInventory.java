@@ -3,10 +3,16 @@ package fi.dy.masa.malilib.mixin;
 import net.minecraft.entity.Entity;
 import net.minecraft.inventory.Inventory;
 import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.ItemStack;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import fi.dy.masa.malilib.util.IEntityOwnedInventory;
+import fi.dy.masa.malilib.util.InventoryCountTracker;
 
 @Mixin(SimpleInventory.class)
 public abstract class MixinSimpleInventory implements IEntityOwnedInventory, Inventory
@@ -24,4 +30,35 @@ public abstract class MixinSimpleInventory implements IEntityOwnedInventory, Inv
     {
         this.entityOwner = entityOwner;
     }
+
+    @Inject(method = "setStack", at = @At("TAIL"))
+    private void malilib_onSetStack(int slot, ItemStack stack, CallbackInfo ci)
+    {
+        InventoryCountTracker.getInstance().onSlotChanged(this, slot);
+    }
+
+    @Inject(method = "removeStack(II)Lnet/minecraft/item/ItemStack;", at = @At("TAIL"))
+    private void malilib_onRemoveStack(int slot, int amount, CallbackInfoReturnable<ItemStack> cir)
+    {
+        InventoryCountTracker.getInstance().onSlotChanged(this, slot);
+    }
+
+    @Inject(method = "removeStack(I)Lnet/minecraft/item/ItemStack;", at = @At("TAIL"))
+    private void malilib_onRemoveStack(int slot, CallbackInfoReturnable<ItemStack> cir)
+    {
+        InventoryCountTracker.getInstance().onSlotChanged(this, slot);
+    }
+
+    @Inject(method = "clear", at = @At("TAIL"))
+    private void malilib_onClear(CallbackInfo ci)
+    {
+        InventoryCountTracker.getInstance().markAllSlotsChanged(this);
+    }
+
+    // Not TAIL, the stack can get fully merged into existing slots, which returns early and doesn't go through setStack()
+    @Inject(method = "addStack", at = @At("RETURN"))
+    private void malilib_onAddStack(ItemStack stack, CallbackInfoReturnable<ItemStack> cir)
+    {
+        InventoryCountTracker.getInstance().markAllSlotsChanged(this);
+    }
 }
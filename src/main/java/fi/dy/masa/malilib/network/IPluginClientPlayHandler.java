@@ -176,7 +176,22 @@ public interface IPluginClientPlayHandler<T extends CustomPayload> extends Clien
     default <P extends IClientPayloadData> void encodeClientData(P data) {}
 
     /**
-     * Used as an iterative "wrapper" for Payload Splitter to send individual Packets
+     * Return true to use the framed Payload Splitter format on this channel.
+     * The framed format has a flags byte after the payload size in the first fragment,
+     * and payloads of at least {@link PacketSplitter#COMPRESSION_THRESHOLD} bytes get deflate compressed
+     * while they are being split, and decompressed incrementally while they are being received.
+     * This is useful for NBT heavy payloads. Both ends of the channel must use the same format.
+     * @return (true / false)
+     */
+    default boolean usesSplitterCompression()
+    {
+        return false;
+    }
+
+    /**
+     * Used as an iterative "wrapper" for Payload Splitter to send individual Packets.
+     * The buffer is a retained view over the original packet buffer (it is not a copy),
+     * so it should be released once it has been written out, if the original buffer is pooled or direct.
      * @param buf (Sliced Buffer to send)
      * @param handler (Network Handler as a fail-over option)
      */
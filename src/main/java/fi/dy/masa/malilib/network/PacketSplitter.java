@@ -1,8 +1,10 @@
 package fi.dy.masa.malilib.network;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import net.minecraft.client.network.ClientPlayNetworkHandler;
 import net.minecraft.network.PacketByteBuf;
@@ -24,8 +26,20 @@ public class PacketSplitter
     public static final int MAX_PAYLOAD_PER_PACKET_C2S = MAX_TOTAL_PER_PACKET_C2S - 5;
     public static final int DEFAULT_MAX_RECEIVE_SIZE_C2S = 1048576;
     public static final int DEFAULT_MAX_RECEIVE_SIZE_S2C = 67108864;
+    public static final int COMPRESSION_THRESHOLD = 256;
+    public static final byte FLAG_NONE = 0;
+    public static final byte FLAG_DEFLATE = 1;
 
-    private static final Map<Long, ReadingSession> READING_SESSIONS = new HashMap<>();
+    private static final ReadingSessionManager READING_SESSIONS = new ReadingSessionManager();
+
+    /**
+     * Returns the manager for the incomplete reading sessions,
+     * which can be used to configure the limits and to get the current statistics.
+     */
+    public static ReadingSessionManager getReadingSessionManager()
+    {
+        return READING_SESSIONS;
+    }
 
     public static <T extends CustomPayload> boolean send(IPluginClientPlayHandler<T> handler, PacketByteBuf packet, ClientPlayNetworkHandler networkHandler)
     {
@@ -35,22 +49,47 @@ public class PacketSplitter
     private static <T extends CustomPayload> boolean send(IPluginClientPlayHandler<T> handler, PacketByteBuf packet, int payloadLimit, ClientPlayNetworkHandler networkHandler)
     {
         int len = packet.writerIndex();
+        boolean framed = handler.usesSplitterCompression();
 
         packet.resetReaderIndex();
 
-        for (int offset = 0; offset < len; offset += payloadLimit)
+        if (framed && len >= COMPRESSION_THRESHOLD)
         {
-            int thisLen = Math.min(len - offset, payloadLimit);
-            PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer(thisLen));
+            sendCompressed(handler, packet, len, payloadLimit, networkHandler);
+            packet.release();
+            return true;
+        }
 
-            buf.resetWriterIndex();
+        // The payload limit only reserves space for the size VarInt, the flags byte comes out of the first fragment
+        int firstLimit = framed ? payloadLimit - 1 : payloadLimit;
+
+        for (int offset = 0; offset < len; )
+        {
+            int thisLen = Math.min(len - offset, offset == 0 ? firstLimit : payloadLimit);
+            // The slices are views over the original buffer, and each of them holds a reference to it
+            ByteBuf slice = packet.retainedSlice(offset, thisLen);
+            PacketByteBuf buf;
 
             if (offset == 0)
             {
-                buf.writeVarInt(len);
+                PacketByteBuf header = new PacketByteBuf(Unpooled.buffer(6));
+                header.writeVarInt(len);
+
+                if (framed)
+                {
+                    header.writeByte(FLAG_NONE);
+                }
+
+                CompositeByteBuf composite = Unpooled.compositeBuffer(2);
+                composite.addComponents(true, header, slice);
+                buf = new PacketByteBuf(composite);
+            }
+            else
+            {
+                buf = new PacketByteBuf(slice);
             }
 
-            buf.writeBytes(packet, thisLen);
+            offset += thisLen;
             handler.encodeWithSplitter(buf, networkHandler);
         }
 
@@ -59,20 +98,69 @@ public class PacketSplitter
         return true;
     }
 
+    /**
+     * Deflates the packet in a streaming fashion directly into the outgoing fragments,
+     * so that there is no intermediate buffer for the whole compressed payload.
+     * The header has the uncompressed size, so the receiving end can allocate the output buffer up front.
+     */
+    private static <T extends CustomPayload> void sendCompressed(IPluginClientPlayHandler<T> handler, PacketByteBuf packet, int len,
+                                                                 int payloadLimit, ClientPlayNetworkHandler networkHandler)
+    {
+        Deflater deflater = new Deflater();
+
+        try
+        {
+            deflater.setInput(packet.nioBuffer(packet.readerIndex(), len));
+            deflater.finish();
+            boolean first = true;
+
+            while (deflater.finished() == false)
+            {
+                PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer(payloadLimit + 5));
+                int thisLimit = payloadLimit;
+
+                if (first)
+                {
+                    buf.writeVarInt(len);
+                    buf.writeByte(FLAG_DEFLATE);
+                    // The payload limit only reserves space for the size VarInt, not for the flags byte
+                    thisLimit = payloadLimit - 1;
+                    first = false;
+                }
+
+                int writerIndex = buf.writerIndex();
+                ByteBuffer out = buf.nioBuffer(writerIndex, thisLimit);
+
+                while (out.hasRemaining() && deflater.finished() == false)
+                {
+                    deflater.deflate(out);
+                }
+
+                buf.writerIndex(writerIndex + out.position());
+                handler.encodeWithSplitter(buf, networkHandler);
+            }
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
     public static <T extends CustomPayload> PacketByteBuf receive(IPluginClientPlayHandler<T> handler,
                                                                   long key,
                                                                   PacketByteBuf buf)
     {
-        return receive(handler.getPayloadChannel(), key, buf, DEFAULT_MAX_RECEIVE_SIZE_S2C);
+        return receive(handler.getPayloadChannel(), key, buf, DEFAULT_MAX_RECEIVE_SIZE_S2C, handler.usesSplitterCompression());
     }
 
     @Nullable
     private static PacketByteBuf receive(Identifier channel,
                                          long key,
                                          PacketByteBuf buf,
-                                         int maxLength)
+                                         int maxLength,
+                                         boolean framed)
     {
-        return READING_SESSIONS.computeIfAbsent(key, ReadingSession::new).receive(buf, maxLength);
+        return READING_SESSIONS.receive(key, buf, maxLength, framed);
     }
 
     // Not needed
@@ -97,54 +185,4 @@ public class PacketSplitter
         send(handler, buf, networkHandler);
     }
      */
-
-    /**
-     * I had to fix the `Pair.of` key mappings, because they were removed from MC;
-     * So I made it into a pre-shared random session 'key' between client and server.
-     * Generated using 'long key = Random.create(Util.getMeasuringTimeMs()).nextLong();'
-     * -
-     * It can be shared to the receiving end via a separate packet; or it can just be
-     * generated randomly on the receiving end per an expected Reading Session.
-     * It needs to be stored and changed for every unique session.
-     */
-    private static class ReadingSession
-    {
-        private final long key;
-        private int expectedSize = -1;
-        private PacketByteBuf received;
-
-        private ReadingSession(long key)
-        {
-            this.key = key;
-        }
-
-        @Nullable
-        private PacketByteBuf receive(PacketByteBuf data, int maxLength)
-        {
-            data.readerIndex(0);
-            //data = PacketUtils.slice(data);
-
-            if (this.expectedSize < 0)
-            {
-                this.expectedSize = data.readVarInt();
-
-                if (this.expectedSize > maxLength)
-                {
-                    throw new IllegalArgumentException("Payload too large");
-                }
-
-                this.received = new PacketByteBuf(Unpooled.buffer(this.expectedSize));
-            }
-
-            this.received.writeBytes(data.readBytes(data.readableBytes()));
-
-            if (this.received.writerIndex() >= this.expectedSize)
-            {
-                READING_SESSIONS.remove(this.key);
-                return this.received;
-            }
-
-            return null;
-        }
-    }
 }
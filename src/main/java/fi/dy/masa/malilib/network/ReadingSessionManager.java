@@ -0,0 +1,456 @@
+package fi.dy.masa.malilib.network;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.ApiStatus;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Util;
+
+import fi.dy.masa.malilib.MaLiLib;
+
+/**
+ * Keeps track of the partially received split payloads for {@link PacketSplitter}.
+ * The sessions are stored in a concurrent map, so the payloads can be received from any thread.
+ * Sessions that haven't received any data within the idle timeout get dropped,
+ * and if the total amount of buffered data exceeds the byte budget, or there are too many sessions,
+ * then the least recently used sessions get evicted.
+ * The keys of the dropped sessions are remembered for a short while, so that the rest of their fragments
+ * get discarded instead of being read as the start of a new payload.
+ */
+public class ReadingSessionManager
+{
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 30000L;
+    public static final long DEFAULT_MAX_BUFFERED_BYTES = 2L * PacketSplitter.DEFAULT_MAX_RECEIVE_SIZE_S2C;
+    public static final int DEFAULT_MAX_SESSIONS = 64;
+
+    private static final long EXPIRE_CHECK_INTERVAL_MS = 1000L;
+    private static final long TOMBSTONE_TIMEOUT_MS = 2000L;
+
+    private final Map<Long, ReadingSession> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Long> tombstones = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong droppedFragmentCount = new AtomicLong();
+    private volatile long idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+    private volatile long maxBufferedBytes = DEFAULT_MAX_BUFFERED_BYTES;
+    private volatile int maxSessions = DEFAULT_MAX_SESSIONS;
+    private volatile long lastExpireCheck;
+
+    public void setIdleTimeout(long idleTimeoutMs)
+    {
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    public void setMaxBufferedBytes(long maxBufferedBytes)
+    {
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    public void setMaxSessions(int maxSessions)
+    {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * @return the number of currently incomplete reading sessions
+     */
+    public int getActiveSessionCount()
+    {
+        return this.sessions.size();
+    }
+
+    /**
+     * @return the total number of bytes buffered by the incomplete reading sessions
+     */
+    public long getBufferedBytes()
+    {
+        return this.bufferedBytes.get();
+    }
+
+    /**
+     * @return the number of sessions that have been evicted because of the byte budget or the session limit
+     */
+    public long getEvictedCount()
+    {
+        return this.evictedCount.get();
+    }
+
+    /**
+     * @return the number of sessions that have been dropped because they were idle for too long
+     */
+    public long getExpiredCount()
+    {
+        return this.expiredCount.get();
+    }
+
+    /**
+     * @return the number of fragments that have been discarded because their session had been dropped
+     */
+    public long getDroppedFragmentCount()
+    {
+        return this.droppedFragmentCount.get();
+    }
+
+    @Nullable
+    public PacketByteBuf receive(long key, PacketByteBuf data, int maxLength)
+    {
+        return this.receive(key, data, maxLength, false);
+    }
+
+    /**
+     * Adds the received fragment to the session with the given key.
+     * @param framed true if the first fragment has the flags byte after the size,
+     *               see {@link IPluginClientPlayHandler#usesSplitterCompression()}
+     * @return the complete payload, or null if the payload is still incomplete
+     */
+    @Nullable
+    public PacketByteBuf receive(long key, PacketByteBuf data, int maxLength, boolean framed)
+    {
+        long now = Util.getMeasuringTimeMs();
+
+        if (this.isDroppedSession(key, now))
+        {
+            this.droppedFragmentCount.incrementAndGet();
+            return null;
+        }
+
+        ReadingSession session = this.sessions.computeIfAbsent(key, ReadingSession::new);
+        PacketByteBuf result;
+
+        synchronized (session)
+        {
+            if (session.released)
+            {
+                // Completed or dropped by another thread in the meantime, start over.
+                // If the session was dropped, then the tombstone discards this fragment.
+                this.sessions.remove(key, session);
+                return this.receive(key, data, maxLength, framed);
+            }
+
+            int sizeBefore = session.getBufferedBytes();
+
+            try
+            {
+                result = session.receive(data, maxLength, framed, now);
+            }
+            catch (RuntimeException e)
+            {
+                this.removeSession(session);
+                throw e;
+            }
+
+            if (result != null)
+            {
+                // The completed buffer is handed over to the caller, so it doesn't count towards the budget anymore
+                session.finish();
+                this.sessions.remove(key, session);
+                this.bufferedBytes.addAndGet(-sizeBefore);
+                return result;
+            }
+
+            this.bufferedBytes.addAndGet(session.getBufferedBytes() - sizeBefore);
+        }
+
+        this.evictOverBudget(session);
+
+        return null;
+    }
+
+    /**
+     * Checks whether the given key belongs to a recently dropped session.
+     * The tombstone has a fixed lifetime and is never extended, since the handlers re-use the same key
+     * for the next payload, which must not get dropped as well. The rest of the fragments of a payload
+     * are normally sent right after each other, so they arrive well within the lifetime.
+     */
+    private boolean isDroppedSession(long key, long now)
+    {
+        Long expireTime = this.tombstones.get(key);
+
+        if (expireTime == null)
+        {
+            return false;
+        }
+
+        if (now >= expireTime)
+        {
+            this.tombstones.remove(key, expireTime);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Expires the idle sessions and the old tombstones periodically.
+     * Called from the client tick, so that the sessions expire even if no more payloads are received.
+     */
+    @ApiStatus.Internal
+    public void onClientTick()
+    {
+        long now = Util.getMeasuringTimeMs();
+
+        if (now - this.lastExpireCheck >= EXPIRE_CHECK_INTERVAL_MS)
+        {
+            this.lastExpireCheck = now;
+            this.expireIdleSessions(now);
+            this.tombstones.values().removeIf((expireTime) -> now >= expireTime);
+        }
+    }
+
+    /**
+     * Drops all sessions that haven't received any data within the idle timeout
+     */
+    public void expireIdleSessions()
+    {
+        this.expireIdleSessions(Util.getMeasuringTimeMs());
+    }
+
+    private void expireIdleSessions(long now)
+    {
+        long timeout = this.idleTimeoutMs;
+
+        for (ReadingSession session : this.sessions.values())
+        {
+            if (now - session.lastAccess > timeout && this.removeSession(session))
+            {
+                this.expiredCount.incrementAndGet();
+                MaLiLib.printDebug("ReadingSessionManager: expired idle session {}", session.key);
+            }
+        }
+    }
+
+    private void evictOverBudget(ReadingSession current)
+    {
+        while (this.bufferedBytes.get() > this.maxBufferedBytes || this.sessions.size() > this.maxSessions)
+        {
+            ReadingSession eldest = null;
+
+            for (ReadingSession session : this.sessions.values())
+            {
+                if (session != current && (eldest == null || session.lastAccess < eldest.lastAccess))
+                {
+                    eldest = session;
+                }
+            }
+
+            if (eldest == null)
+            {
+                break;
+            }
+
+            if (this.removeSession(eldest))
+            {
+                this.evictedCount.incrementAndGet();
+                MaLiLib.printDebug("ReadingSessionManager: evicted session {}", eldest.key);
+            }
+        }
+    }
+
+    private boolean removeSession(ReadingSession session)
+    {
+        synchronized (session)
+        {
+            if (session.released)
+            {
+                return false;
+            }
+
+            this.sessions.remove(session.key, session);
+            this.tombstones.put(session.key, Util.getMeasuringTimeMs() + TOMBSTONE_TIMEOUT_MS);
+            this.bufferedBytes.addAndGet(-session.getBufferedBytes());
+            session.release();
+
+            return true;
+        }
+    }
+
+    /**
+     * Drops all the incomplete sessions, for example when disconnecting from a server
+     */
+    public void clear()
+    {
+        for (ReadingSession session : this.sessions.values())
+        {
+            this.removeSession(session);
+        }
+
+        this.tombstones.clear();
+    }
+
+    /**
+     * I had to fix the `Pair.of` key mappings, because they were removed from MC;
+     * So I made it into a pre-shared random session 'key' between client and server.
+     * Generated using 'long key = Random.create(Util.getMeasuringTimeMs()).nextLong();'
+     * -
+     * It can be shared to the receiving end via a separate packet; or it can just be
+     * generated randomly on the receiving end per an expected Reading Session.
+     * It needs to be stored and changed for every unique session.
+     */
+    private static class ReadingSession
+    {
+        private static final int INFLATE_CHUNK_SIZE = 65536;
+
+        private final long key;
+        private int expectedSize = -1;
+        @Nullable private ByteBuf received;
+        @Nullable private Inflater inflater;
+        private volatile long lastAccess;
+        private boolean released;
+
+        private ReadingSession(long key)
+        {
+            this.key = key;
+            this.lastAccess = Util.getMeasuringTimeMs();
+        }
+
+        private int getBufferedBytes()
+        {
+            return this.received != null ? this.received.writerIndex() : 0;
+        }
+
+        @Nullable
+        private PacketByteBuf receive(PacketByteBuf data, int maxLength, boolean framed, long now)
+        {
+            this.lastAccess = now;
+            data.readerIndex(0);
+
+            if (this.expectedSize < 0)
+            {
+                this.expectedSize = data.readVarInt();
+
+                if (this.expectedSize > maxLength)
+                {
+                    throw new IllegalArgumentException("Payload too large");
+                }
+
+                byte flags = framed ? data.readByte() : PacketSplitter.FLAG_NONE;
+
+                if (flags == PacketSplitter.FLAG_DEFLATE)
+                {
+                    this.inflater = new Inflater();
+                    this.received = Unpooled.buffer(Math.min(this.expectedSize, INFLATE_CHUNK_SIZE), this.expectedSize);
+                }
+                else if (flags == PacketSplitter.FLAG_NONE)
+                {
+                    // Never consolidate the components, as that would copy all the data received so far
+                    this.received = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Unknown payload flags: " + flags);
+                }
+            }
+
+            if (this.inflater != null)
+            {
+                this.inflate(data);
+            }
+            else
+            {
+                // Append a view of the fragment without copying it
+                ((CompositeByteBuf) this.received).addComponent(true, data.retainedSlice(data.readerIndex(), data.readableBytes()));
+                data.skipBytes(data.readableBytes());
+            }
+
+            if (this.received.writerIndex() >= this.expectedSize)
+            {
+                return new PacketByteBuf(this.received);
+            }
+
+            return null;
+        }
+
+        /**
+         * Decompresses the fragment directly into the received buffer,
+         * growing it only as much as is needed for the output
+         */
+        private void inflate(PacketByteBuf data)
+        {
+            this.inflater.setInput(data.nioBuffer(data.readerIndex(), data.readableBytes()));
+            data.skipBytes(data.readableBytes());
+
+            try
+            {
+                // Keep going until no more output can be produced from the current input,
+                // since the inflater can still have buffered output even when needsInput() is true
+                while (this.inflater.finished() == false)
+                {
+                    int remaining = this.expectedSize - this.received.writerIndex();
+
+                    if (remaining <= 0)
+                    {
+                        break;
+                    }
+
+                    this.received.ensureWritable(Math.min(remaining, INFLATE_CHUNK_SIZE));
+
+                    int writerIndex = this.received.writerIndex();
+                    ByteBuffer out = this.received.nioBuffer(writerIndex, Math.min(this.received.writableBytes(), remaining));
+                    int count = this.inflater.inflate(out);
+
+                    this.received.writerIndex(writerIndex + count);
+
+                    if (count == 0)
+                    {
+                        if (this.inflater.needsDictionary())
+                        {
+                            throw new IllegalArgumentException("Invalid compressed payload");
+                        }
+
+                        // Out of input, wait for the next fragment
+                        break;
+                    }
+                }
+
+                if (this.inflater.finished() && this.received.writerIndex() < this.expectedSize)
+                {
+                    throw new IllegalArgumentException("Truncated compressed payload");
+                }
+            }
+            catch (DataFormatException e)
+            {
+                throw new IllegalArgumentException("Invalid compressed payload", e);
+            }
+        }
+
+        /**
+         * Marks the session as completed, after the received buffer has been handed over
+         */
+        private void finish()
+        {
+            this.released = true;
+            this.received = null;
+            this.endInflater();
+        }
+
+        private void release()
+        {
+            this.released = true;
+            this.endInflater();
+
+            if (this.received != null)
+            {
+                this.received.release();
+                this.received = null;
+            }
+        }
+
+        private void endInflater()
+        {
+            if (this.inflater != null)
+            {
+                this.inflater.end();
+                this.inflater = null;
+            }
+        }
+    }
+}
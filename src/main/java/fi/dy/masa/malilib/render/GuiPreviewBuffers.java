@@ -0,0 +1,107 @@
+package fi.dy.masa.malilib.render;
+
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import net.minecraft.client.render.MapRenderState;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.util.BufferAllocator;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.component.type.MapIdComponent;
+
+/**
+ * A long-lived immediate vertex consumer provider for GUI level 3D and map previews,
+ * so that the previews don't need to allocate new native buffer memory every frame.
+ * The buffer memory is released on resource reloads and on shutdown,
+ * and re-allocated the next time it's needed.
+ * Only use this from the render thread.
+ */
+public class GuiPreviewBuffers
+{
+    private static final GuiPreviewBuffers INSTANCE = new GuiPreviewBuffers();
+    private static final int MAX_MAP_STATES = 64;
+
+    private final MatrixStack matrixStack = new MatrixStack();
+    private final Int2ObjectOpenHashMap<MapRenderState> mapRenderStates = new Int2ObjectOpenHashMap<>();
+    @Nullable private BufferAllocator allocator;
+    @Nullable private VertexConsumerProvider.Immediate consumers;
+
+    public static GuiPreviewBuffers getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the shared immediate vertex consumer provider.
+     * Call {@link VertexConsumerProvider.Immediate#draw()} after rendering into it.
+     */
+    public VertexConsumerProvider.Immediate getConsumers()
+    {
+        if (this.consumers == null)
+        {
+            this.allocator = new BufferAllocator(RenderLayer.DEFAULT_BUFFER_SIZE);
+            this.consumers = VertexConsumerProvider.immediate(this.allocator);
+        }
+
+        return this.consumers;
+    }
+
+    /**
+     * Returns the shared matrix stack, reset to the identity matrix
+     */
+    public MatrixStack getMatrixStack()
+    {
+        while (this.matrixStack.isEmpty() == false)
+        {
+            this.matrixStack.pop();
+        }
+
+        this.matrixStack.loadIdentity();
+
+        return this.matrixStack;
+    }
+
+    /**
+     * Returns the re-usable render state object for the given map id.
+     * The state still needs to be updated from the map data before each use.
+     */
+    public MapRenderState getMapRenderState(MapIdComponent mapId)
+    {
+        MapRenderState state = this.mapRenderStates.get(mapId.id());
+
+        if (state == null)
+        {
+            if (this.mapRenderStates.size() >= MAX_MAP_STATES)
+            {
+                this.mapRenderStates.clear();
+            }
+
+            state = new MapRenderState();
+            this.mapRenderStates.put(mapId.id(), state);
+        }
+
+        return state;
+    }
+
+    /**
+     * Releases the native buffer memory and the cached map states.
+     * The buffers get re-allocated the next time they're needed.
+     */
+    public void close()
+    {
+        this.mapRenderStates.clear();
+
+        if (this.consumers != null)
+        {
+            this.consumers.draw();
+            this.consumers = null;
+        }
+
+        if (this.allocator != null)
+        {
+            this.allocator.close();
+            this.allocator = null;
+        }
+    }
+}
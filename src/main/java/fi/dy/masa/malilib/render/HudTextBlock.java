@@ -0,0 +1,178 @@
+package fi.dy.masa.malilib.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+
+import fi.dy.masa.malilib.config.HudAlignment;
+import fi.dy.masa.malilib.util.GuiUtils;
+
+/**
+ * A retained block of HUD text lines. The line widths and positions are cached,
+ * and they only get re-calculated when the lines, the offsets, the scale,
+ * the alignment or the window size change.
+ * All the line backgrounds are drawn in one batch, and all the text in one draw.
+ */
+public class HudTextBlock
+{
+    private static final int BG_MARGIN = 2;
+
+    private final List<String> lines = new ArrayList<>();
+    private int[] lineX = new int[0];
+    private int[] lineY = new int[0];
+    private int[] lineWidths = new int[0];
+    private int xOff;
+    private int yOff;
+    private double scale;
+    private HudAlignment alignment;
+    private int windowWidth;
+    private int windowHeight;
+    private int contentHeight;
+    private boolean valid;
+
+    /**
+     * Forces the layout to be re-calculated on the next render call,
+     * for example if the font has changed
+     */
+    public void invalidate()
+    {
+        this.valid = false;
+    }
+
+    /**
+     * Renders the given lines as a HUD text block at the given alignment.
+     * The layout is only re-calculated if any of the inputs have changed since the previous call.
+     * @return the height of the rendered block, including the background margins
+     */
+    public int render(int xOff, int yOff, double scale, int textColor, int bgColor,
+                      HudAlignment alignment, boolean useBackground, boolean useShadow, List<String> lines,
+                      DrawContext drawContext)
+    {
+        // Only Chuck Norris can divide by zero
+        if (scale < 0.0125)
+        {
+            return 0;
+        }
+
+        MinecraftClient mc = MinecraftClient.getInstance();
+        TextRenderer fontRenderer = mc.textRenderer;
+        boolean scaled = scale != 1.0;
+
+        if (scaled)
+        {
+            xOff = (int) (xOff * scale);
+            yOff = (int) (yOff * scale);
+        }
+
+        this.updateLayout(xOff, yOff, scale, alignment, lines, fontRenderer);
+
+        final int count = this.lines.size();
+        final int potionOffset = RenderUtils.getHudOffsetForPotions(alignment, scale, mc.player);
+
+        if (scaled)
+        {
+            drawContext.getMatrices().push();
+            drawContext.getMatrices().scale((float) scale, (float) scale, 1.0f);
+        }
+
+        if (useBackground)
+        {
+            QuadBatcher batcher = QuadBatcher.getInstance();
+            final float bgScale = (float) scale;
+            final int bgHeight = BG_MARGIN + fontRenderer.fontHeight;
+
+            for (int i = 0; i < count; ++i)
+            {
+                int x = this.lineX[i] - BG_MARGIN;
+                int y = this.lineY[i] + potionOffset - BG_MARGIN;
+                int width = this.lineWidths[i] + BG_MARGIN;
+
+                batcher.addRect(x * bgScale, y * bgScale, (x + width) * bgScale, (y + bgHeight) * bgScale, 0f, bgColor);
+            }
+
+            batcher.flush();
+        }
+
+        for (int i = 0; i < count; ++i)
+        {
+            drawContext.drawText(fontRenderer, this.lines.get(i), this.lineX[i], this.lineY[i] + potionOffset, textColor, useShadow);
+        }
+
+        RenderUtils.forceDraw(drawContext);
+
+        if (scaled)
+        {
+            drawContext.getMatrices().pop();
+        }
+
+        return this.contentHeight + BG_MARGIN * 2;
+    }
+
+    private void updateLayout(int xOff, int yOff, double scale, HudAlignment alignment, List<String> lines, TextRenderer fontRenderer)
+    {
+        final int windowWidth = GuiUtils.getScaledWindowWidth();
+        final int windowHeight = GuiUtils.getScaledWindowHeight();
+
+        if (this.valid &&
+            this.xOff == xOff &&
+            this.yOff == yOff &&
+            this.scale == scale &&
+            this.alignment == alignment &&
+            this.windowWidth == windowWidth &&
+            this.windowHeight == windowHeight &&
+            this.lines.equals(lines))
+        {
+            return;
+        }
+
+        final int count = lines.size();
+        final int lineHeight = fontRenderer.fontHeight + 2;
+        final int contentHeight = count * lineHeight - 2;
+
+        if (this.lineX.length < count)
+        {
+            this.lineX = new int[count];
+            this.lineY = new int[count];
+            this.lineWidths = new int[count];
+        }
+
+        this.lines.clear();
+        this.lines.addAll(lines);
+
+        double posX = xOff + BG_MARGIN;
+        double posY = RenderUtils.getHudPosY(yOff + BG_MARGIN, yOff, contentHeight, scale, alignment);
+
+        for (int i = 0; i < count; ++i)
+        {
+            final int width = fontRenderer.getWidth(lines.get(i));
+
+            switch (alignment)
+            {
+                case TOP_RIGHT:
+                case BOTTOM_RIGHT:
+                    posX = (windowWidth / scale) - width - xOff - BG_MARGIN;
+                    break;
+                case CENTER:
+                    posX = (windowWidth / scale / 2) - ((double) width / 2) - xOff;
+                    break;
+                default:
+            }
+
+            this.lineX[i] = (int) posX;
+            this.lineY[i] = (int) posY;
+            this.lineWidths[i] = width;
+            posY += lineHeight;
+        }
+
+        this.xOff = xOff;
+        this.yOff = yOff;
+        this.scale = scale;
+        this.alignment = alignment;
+        this.windowWidth = windowWidth;
+        this.windowHeight = windowHeight;
+        this.contentHeight = contentHeight;
+        this.valid = true;
+    }
+}
@@ -3,6 +3,7 @@ package fi.dy.masa.malilib.render;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -91,6 +92,7 @@ public class InventoryOverlay
     };
 
     private static ItemStack hoveredStack = null;
+    private static final ItemStackBatch STACK_BATCH = new ItemStackBatch();
 
     public static void renderInventoryBackground(InventoryRenderType type, int x, int y, int slotsPerRow, int totalSlots, MinecraftClient mc)
     {
@@ -822,63 +824,46 @@ public class InventoryOverlay
      */
     public static void renderInventoryStacks(InventoryRenderType type, Inventory inv, int startX, int startY, int slotsPerRow, int startSlot, int maxSlots, Set<Integer> disabledSlots, MinecraftClient mc, DrawContext drawContext, double mouseX, double mouseY)
     {
+        ItemStackBatch batch = STACK_BATCH;
+        ItemStack hovered = null;
+
+        batch.clear();
+
         if (type == InventoryRenderType.FURNACE)
         {
-            renderStackAt(inv.getStack(0), startX + 8, startY + 8, 1, mc, drawContext, mouseX, mouseY);
-            renderStackAt(inv.getStack(1), startX + 8, startY + 44, 1, mc, drawContext, mouseX, mouseY);
-            renderStackAt(inv.getStack(2), startX + 68, startY + 26, 1, mc, drawContext, mouseX, mouseY);
+            hovered = addStackToBatch(batch, inv.getStack(0), startX + 8, startY + 8, mouseX, mouseY, hovered);
+            hovered = addStackToBatch(batch, inv.getStack(1), startX + 8, startY + 44, mouseX, mouseY, hovered);
+            hovered = addStackToBatch(batch, inv.getStack(2), startX + 68, startY + 26, mouseX, mouseY, hovered);
         }
         else if (type == InventoryRenderType.BREWING_STAND)
         {
-            renderStackAt(inv.getStack(0), startX + 47, startY + 42, 1, mc, drawContext, mouseX, mouseY);
-            renderStackAt(inv.getStack(1), startX + 70, startY + 49, 1, mc, drawContext, mouseX, mouseY);
-            renderStackAt(inv.getStack(2), startX + 93, startY + 42, 1, mc, drawContext, mouseX, mouseY);
-            renderStackAt(inv.getStack(3), startX + 70, startY + 8, 1, mc, drawContext, mouseX, mouseY);
-            renderStackAt(inv.getStack(4), startX + 8, startY + 8, 1, mc, drawContext, mouseX, mouseY);
+            hovered = addStackToBatch(batch, inv.getStack(0), startX + 47, startY + 42, mouseX, mouseY, hovered);
+            hovered = addStackToBatch(batch, inv.getStack(1), startX + 70, startY + 49, mouseX, mouseY, hovered);
+            hovered = addStackToBatch(batch, inv.getStack(2), startX + 93, startY + 42, mouseX, mouseY, hovered);
+            hovered = addStackToBatch(batch, inv.getStack(3), startX + 70, startY + 8, mouseX, mouseY, hovered);
+            hovered = addStackToBatch(batch, inv.getStack(4), startX + 8, startY + 8, mouseX, mouseY, hovered);
         }
         else
         {
             final int slots = inv.size();
-            int x = startX;
-            int y = startY;
 
             if (maxSlots < 0)
             {
                 maxSlots = slots;
             }
 
-            for (int slot = startSlot, i = 0; slot < slots && i < maxSlots; )
-            {
-                for (int column = 0; column < slotsPerRow && slot < slots && i < maxSlots; ++column, ++slot, ++i)
-                {
-                    ItemStack stack = inv.getStack(slot);
-
-                    if (disabledSlots.contains(slot))
-                    {
-                        // Requires -1 offset, because locked texture is 18 x 18.
-                        renderLockedSlotAt(x - 1, y - 1, 1, drawContext, mouseX, mouseY);
-                    }
-                    else if (!stack.isEmpty())
-                    {
-                        //System.out.printf("renderInventoryStacks: slot[%d/%d]: [%s]\n", slot, slots, stack);
-                        renderStackAt(stack, x, y, 1, mc, drawContext, mouseX, mouseY);
-                    }
+            addGridStacksToBatch(batch, inv::getStack, slots, startX, startY, slotsPerRow, startSlot, maxSlots, disabledSlots, drawContext);
 
-                    x += 18;
-                }
+            int slot = getHoveredGridSlot(startX, startY, slotsPerRow, startSlot, maxSlots, slots, mouseX, mouseY);
 
-                x = startX;
-                y += 18;
+            if (slot >= 0 && disabledSlots.contains(slot) == false)
+            {
+                hovered = inv.getStack(slot);
             }
         }
 
-        if (hoveredStack != null)
-        {
-            var stack = hoveredStack.copy();
-            hoveredStack = null;
-            // Some mixin / side effects can happen here
-            drawContext.drawItemTooltip(mc.textRenderer, stack, (int) mouseX, (int) mouseY);
-        }
+        batch.render(mc, drawContext);
+        renderHoveredStackTooltip(hovered, mc, drawContext, mouseX, mouseY);
     }
 
     public static void renderEquipmentStacks(LivingEntity entity, int x, int y, MinecraftClient mc, DrawContext drawContext)
@@ -888,38 +873,22 @@ public class InventoryOverlay
 
     public static void renderEquipmentStacks(LivingEntity entity, int x, int y, MinecraftClient mc, DrawContext drawContext, double mouseX, double mouseY)
     {
-        for (int i = 0, xOff = 7, yOff = 7; i < 4; ++i, yOff += 18)
-        {
-            final EquipmentSlot eqSlot = VALID_EQUIPMENT_SLOTS[i];
-            ItemStack stack = entity.getEquippedStack(eqSlot);
+        ItemStackBatch batch = STACK_BATCH;
+        ItemStack hovered = null;
 
-            if (stack.isEmpty() == false)
-            {
-                renderStackAt(stack, x + xOff + 1, y + yOff + 1, 1, mc, drawContext, mouseX, mouseY);
-            }
-        }
+        batch.clear();
 
-        ItemStack stack = entity.getEquippedStack(EquipmentSlot.MAINHAND);
-
-        if (stack.isEmpty() == false)
+        for (int i = 0, xOff = 7, yOff = 7; i < 4; ++i, yOff += 18)
         {
-            renderStackAt(stack, x + 28, y + 2 * 18 + 7 + 1, 1, mc, drawContext, mouseX, mouseY);
+            final EquipmentSlot eqSlot = VALID_EQUIPMENT_SLOTS[i];
+            hovered = addStackToBatch(batch, entity.getEquippedStack(eqSlot), x + xOff + 1, y + yOff + 1, mouseX, mouseY, hovered);
         }
 
-        stack = entity.getEquippedStack(EquipmentSlot.OFFHAND);
+        hovered = addStackToBatch(batch, entity.getEquippedStack(EquipmentSlot.MAINHAND), x + 28, y + 2 * 18 + 7 + 1, mouseX, mouseY, hovered);
+        hovered = addStackToBatch(batch, entity.getEquippedStack(EquipmentSlot.OFFHAND), x + 28, y + 3 * 18 + 7 + 1, mouseX, mouseY, hovered);
 
-        if (stack.isEmpty() == false)
-        {
-            renderStackAt(stack, x + 28, y + 3 * 18 + 7 + 1, 1, mc, drawContext, mouseX, mouseY);
-        }
-
-        if (hoveredStack != null)
-        {
-            stack = hoveredStack.copy();
-            hoveredStack = null;
-            // Some mixin / side effects can happen here, so reset hoveredStack
-            drawContext.drawItemTooltip(mc.textRenderer, stack, (int) mouseX, (int) mouseY);
-        }
+        batch.render(mc, drawContext);
+        renderHoveredStackTooltip(hovered, mc, drawContext, mouseX, mouseY);
     }
 
     public static void renderItemStacks(DefaultedList<ItemStack> items, int startX, int startY, int slotsPerRow, int startSlot, int maxSlots, MinecraftClient mc, DrawContext drawContext)
@@ -943,28 +912,45 @@ public class InventoryOverlay
     public static void renderItemStacks(DefaultedList<ItemStack> items, int startX, int startY, int slotsPerRow, int startSlot, int maxSlots, Set<Integer> disabledSlots, MinecraftClient mc, DrawContext drawContext)
     {
         final int slots = items.size();
-        int x = startX;
-        int y = startY;
 
         if (maxSlots < 0)
         {
             maxSlots = slots;
         }
 
-        for (int slot = startSlot, i = 0; slot < slots && i < maxSlots;)
+        STACK_BATCH.clear();
+        addGridStacksToBatch(STACK_BATCH, items::get, slots, startX, startY, slotsPerRow, startSlot, maxSlots, disabledSlots, drawContext);
+        STACK_BATCH.render(mc, drawContext);
+    }
+
+    /**
+     * Adds the non-empty stacks of a slot grid to the batch. The locked slots are rendered immediately.
+     */
+    private static void addGridStacksToBatch(ItemStackBatch batch, IntFunction<ItemStack> stackGetter, int slots,
+                                             int startX, int startY, int slotsPerRow, int startSlot, int maxSlots,
+                                             Set<Integer> disabledSlots, DrawContext drawContext)
+    {
+        final boolean hasDisabledSlots = disabledSlots.isEmpty() == false;
+        int x = startX;
+        int y = startY;
+
+        for (int slot = startSlot, i = 0; slot < slots && i < maxSlots; )
         {
             for (int column = 0; column < slotsPerRow && slot < slots && i < maxSlots; ++column, ++slot, ++i)
             {
-                ItemStack stack = items.get(slot);
-
-                if (disabledSlots.contains(slot))
+                if (hasDisabledSlots && disabledSlots.contains(slot))
                 {
                     // Requires -1 offset, because locked texture is 18 x 18.
                     renderLockedSlotAt(x - 1, y - 1, 1, drawContext, 0, 0);
                 }
-                else if (!stack.isEmpty())
+                else
                 {
-                    renderStackAt(stack, x, y, 1, mc, drawContext);
+                    ItemStack stack = stackGetter.apply(slot);
+
+                    if (stack.isEmpty() == false)
+                    {
+                        batch.add(stack, x, y);
+                    }
                 }
 
                 x += 18;
@@ -975,6 +961,65 @@ public class InventoryOverlay
         }
     }
 
+    /**
+     * Calculates the hovered slot of a slot grid from the mouse position
+     * @return the hovered slot number, or -1 if the mouse is not over any of the slots
+     */
+    private static int getHoveredGridSlot(int startX, int startY, int slotsPerRow, int startSlot, int maxSlots, int slots, double mouseX, double mouseY)
+    {
+        double relX = mouseX - startX;
+        double relY = mouseY - startY;
+
+        if (relX < 0 || relY < 0 || slotsPerRow <= 0)
+        {
+            return -1;
+        }
+
+        int column = (int) (relX / 18);
+        int row = (int) (relY / 18);
+
+        // The gaps between the 16 x 16 item areas don't count
+        if (column >= slotsPerRow || relX - column * 18 >= 16 || relY - row * 18 >= 16)
+        {
+            return -1;
+        }
+
+        int index = row * slotsPerRow + column;
+        int slot = startSlot + index;
+
+        return index < maxSlots && slot < slots ? slot : -1;
+    }
+
+    @Nullable
+    private static ItemStack addStackToBatch(ItemStackBatch batch, ItemStack stack, int x, int y, double mouseX, double mouseY, @Nullable ItemStack hovered)
+    {
+        if (stack.isEmpty())
+        {
+            return hovered;
+        }
+
+        batch.add(stack, x, y);
+
+        if (mouseX >= x && mouseX < x + 16 && mouseY >= y && mouseY < y + 16)
+        {
+            return stack;
+        }
+
+        return hovered;
+    }
+
+    private static void renderHoveredStackTooltip(@Nullable ItemStack hovered, MinecraftClient mc, DrawContext drawContext, double mouseX, double mouseY)
+    {
+        // Also handle any stack set via renderStackAt() before this, like the old per-stack hover handling did
+        ItemStack stack = hovered != null && hovered.isEmpty() == false ? hovered : hoveredStack;
+        hoveredStack = null;
+
+        if (stack != null)
+        {
+            drawContext.drawItemTooltip(mc.textRenderer, stack, (int) mouseX, (int) mouseY);
+        }
+    }
+
     public static void renderStackAt(ItemStack stack, float x, float y, float scale, MinecraftClient mc, DrawContext drawContext)
     {
         renderStackAt(stack, x, y, scale, mc, drawContext, 0, 0);
@@ -990,10 +1035,10 @@ public class InventoryOverlay
         RenderUtils.enableDiffuseLightingGui3D();
         RenderUtils.color(1f, 1f, 1f, 1f);
 
-        drawContext.drawItem(stack.copy(), 0, 0);
+        drawContext.drawItem(stack, 0, 0);
 
         RenderUtils.color(1f, 1f, 1f, 1f);
-        drawContext.drawStackOverlay(mc.textRenderer, stack.copyWithCount(stack.getCount()), 0, 0);
+        drawContext.drawStackOverlay(mc.textRenderer, stack, 0, 0);
         RenderUtils.forceDraw(drawContext);
 
         RenderUtils.color(1f, 1f, 1f, 1f);
@@ -1001,7 +1046,7 @@ public class InventoryOverlay
 
         if (mouseX >= x && mouseX < x + 16 * scale && mouseY >= y && mouseY < y + 16 * scale)
         {
-            hoveredStack = stack.copy();
+            hoveredStack = stack;
         }
     }
 
@@ -1150,6 +1195,33 @@ public class InventoryOverlay
         return null;
     }
 
+    /**
+     * Returns a Context based on the NBT Tags of the block entity at the given position.
+     * The inventory is decoded on a background thread, and the previous decoded inventory
+     * (or null) is returned until the decode of a new revision has finished.
+     *
+     * @param pos
+     * @param revision a number that changes whenever the NBT data changes, for example nbtIn.hashCode()
+     * @param nbtIn
+     * @return
+     */
+    public static @Nullable Context invFromNbtAsync(BlockPos pos, int revision, NbtCompound nbtIn)
+    {
+        MinecraftClient mc = MinecraftClient.getInstance();
+
+        if (nbtIn != null && mc.world != null)
+        {
+            NbtInventoryDecoder.DecodedInventory decoded = NbtInventoryDecoder.getInstance().getBlockInventory(pos, revision, nbtIn, -1, mc.world.getRegistryManager());
+
+            if (decoded != null)
+            {
+                return new Context(getInventoryType(nbtIn), decoded.getInventory(), null, null, nbtIn);
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Returns a Context based on a Block Entity World / Pos
      * @param world
@@ -0,0 +1,236 @@
+package fi.dy.masa.malilib.render;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.block.ShulkerBoxBlock;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.BundleContentsComponent;
+import net.minecraft.component.type.ContainerComponent;
+import net.minecraft.component.type.NbtComponent;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.BlockItem;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.util.DyeColor;
+import net.minecraft.util.collection.DefaultedList;
+
+import fi.dy.masa.malilib.util.BlockUtils;
+import fi.dy.masa.malilib.util.InventoryUtils;
+
+/**
+ * Caches the decoded contents of the shulker box, bundle and NBT item list previews,
+ * so that hovering over the same item on consecutive frames doesn't need to decode the contents again.
+ * The entries are keyed by the item and its (immutable) contents components, or a copy of the NBT data,
+ * and the least recently used entries are evicted once the cache is full.
+ * The cache is cleared when the world changes, as the NBT decoding depends on the registries.
+ */
+public class ItemPreviewCache
+{
+    private static final ItemPreviewCache INSTANCE = new ItemPreviewCache();
+    private static final int MAX_ENTRIES = 128;
+
+    private final Map<Key, Preview> cache = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Preview> eldest)
+        {
+            return this.size() > MAX_ENTRIES;
+        }
+    };
+
+    public static ItemPreviewCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the preview of the container contents of the given stack, or null if it has no container component
+     */
+    @Nullable
+    public Preview getContainerPreview(ItemStack stack)
+    {
+        ContainerComponent container = stack.get(DataComponentTypes.CONTAINER);
+
+        if (container == null)
+        {
+            return null;
+        }
+
+        Key key = new Key(stack.getItem(), container, stack.get(DataComponentTypes.BLOCK_ENTITY_DATA));
+        Preview preview = this.cache.get(key);
+
+        if (preview == null)
+        {
+            DefaultedList<ItemStack> items = InventoryUtils.getStoredItems(stack, -1);
+            InventoryOverlay.InventoryRenderType type = InventoryOverlay.getInventoryType(stack);
+            Set<Integer> lockedSlots = Set.of();
+
+            if (type == InventoryOverlay.InventoryRenderType.CRAFTER)
+            {
+                NbtCompound nbt = InventoryUtils.getStoredBlockEntityNbt(stack);
+
+                if (nbt.isEmpty() == false)
+                {
+                    lockedSlots = BlockUtils.getDisabledSlotsFromNbt(nbt);
+                }
+            }
+
+            DyeColor tint = null;
+
+            if (stack.getItem() instanceof BlockItem blockItem && blockItem.getBlock() instanceof ShulkerBoxBlock box)
+            {
+                // In 1.13+ there is the uncolored Shulker Box variant, which returns null from getColor()
+                tint = box.getColor() != null ? box.getColor() : DyeColor.PURPLE;
+            }
+
+            preview = new Preview(items, type, items.size(), lockedSlots, tint);
+            this.cache.put(key, preview);
+        }
+
+        return preview;
+    }
+
+    /**
+     * @return the preview of the bundle contents of the given stack, or null if it has no bundle contents component
+     */
+    @Nullable
+    public Preview getBundlePreview(ItemStack stack)
+    {
+        BundleContentsComponent contents = stack.get(DataComponentTypes.BUNDLE_CONTENTS);
+
+        if (contents == null)
+        {
+            return null;
+        }
+
+        Key key = new Key(stack.getItem(), contents, null);
+        Preview preview = this.cache.get(key);
+
+        if (preview == null)
+        {
+            int count = InventoryUtils.bundleCountItems(stack);
+            DefaultedList<ItemStack> items = InventoryUtils.getBundleItems(stack, count);
+            InventoryOverlay.InventoryRenderType type = InventoryOverlay.getInventoryType(stack);
+
+            preview = new Preview(items, type, count, Set.of(), RenderUtils.getBundleColor(stack));
+            this.cache.put(key, preview);
+        }
+
+        return preview;
+    }
+
+    /**
+     * @return the preview of the NBT items list, or null if the items can't currently be decoded
+     */
+    @Nullable
+    public Preview getNbtItemsPreview(ItemStack stack, @Nonnull NbtCompound itemsTag)
+    {
+        MinecraftClient mc = MinecraftClient.getInstance();
+
+        if (mc.world == null)
+        {
+            return null;
+        }
+
+        Key key = new Key(stack.getItem(), itemsTag, null);
+        Preview preview = this.cache.get(key);
+
+        if (preview == null)
+        {
+            DefaultedList<ItemStack> items = InventoryUtils.getNbtItems(itemsTag, -1, mc.world.getRegistryManager());
+            InventoryOverlay.InventoryRenderType type = InventoryOverlay.getInventoryType(stack);
+
+            preview = new Preview(items, type, items.size(), Set.of(), null);
+            // The NBT data is mutable, so the key needs its own copy
+            this.cache.put(new Key(stack.getItem(), itemsTag.copy(), null), preview);
+        }
+
+        return preview;
+    }
+
+    public void clear()
+    {
+        this.cache.clear();
+    }
+
+    /**
+     * @param contents an immutable component, or a private copy of the NBT data
+     * @param extra an optional additional immutable component affecting the preview
+     */
+    private record Key(Item item, Object contents, @Nullable NbtComponent extra)
+    {
+    }
+
+    public static class Preview
+    {
+        private final DefaultedList<ItemStack> items;
+        private final Inventory inventory;
+        private final InventoryOverlay.InventoryRenderType type;
+        private final int slotCount;
+        private final Set<Integer> lockedSlots;
+        @Nullable private final float[] tintColor;
+
+        private Preview(DefaultedList<ItemStack> items, InventoryOverlay.InventoryRenderType type, int slotCount,
+                        Set<Integer> lockedSlots, @Nullable DyeColor tint)
+        {
+            this.items = items;
+            this.inventory = InventoryUtils.getAsInventory(items);
+            this.type = type;
+            this.slotCount = slotCount;
+            this.lockedSlots = lockedSlots;
+            this.tintColor = tint != null ? RenderUtils.getColorComponents(tint.getEntityColor()) : null;
+        }
+
+        public DefaultedList<ItemStack> getItems()
+        {
+            return this.items;
+        }
+
+        public Inventory getInventory()
+        {
+            return this.inventory;
+        }
+
+        public InventoryOverlay.InventoryRenderType getType()
+        {
+            return this.type;
+        }
+
+        public int getSlotCount()
+        {
+            return this.slotCount;
+        }
+
+        public Set<Integer> getLockedSlots()
+        {
+            return this.lockedSlots;
+        }
+
+        public boolean isEmpty()
+        {
+            return this.items.isEmpty();
+        }
+
+        /**
+         * Sets the shader color to the background tint color of the preview,
+         * or to white if there is no tint or if useBgColors is false
+         */
+        public void applyBackgroundTint(boolean useBgColors)
+        {
+            if (useBgColors && this.tintColor != null)
+            {
+                RenderUtils.color(this.tintColor[0], this.tintColor[1], this.tintColor[2], 1f);
+            }
+            else
+            {
+                RenderUtils.color(1f, 1f, 1f, 1f);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package fi.dy.masa.malilib.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Collects item stacks to be rendered at GUI positions, and then renders
+ * all the items first, then all the stack overlays (counts and durability bars),
+ * and flushes the draw buffers only once at the end.
+ * The stacks are not copied, so they must not be modified before {@link #render(MinecraftClient, DrawContext)}.
+ */
+public class ItemStackBatch
+{
+    private final List<ItemStack> stacks = new ArrayList<>();
+    private int[] positions = new int[64];
+
+    public boolean isEmpty()
+    {
+        return this.stacks.isEmpty();
+    }
+
+    public void add(ItemStack stack, int x, int y)
+    {
+        int index = this.stacks.size() * 2;
+
+        if (index + 1 >= this.positions.length)
+        {
+            this.positions = Arrays.copyOf(this.positions, this.positions.length * 2);
+        }
+
+        this.positions[index] = x;
+        this.positions[index + 1] = y;
+        this.stacks.add(stack);
+    }
+
+    /**
+     * Renders all the added stacks, and then clears the batch
+     */
+    public void render(MinecraftClient mc, DrawContext drawContext)
+    {
+        final int count = this.stacks.size();
+
+        if (count == 0)
+        {
+            return;
+        }
+
+        RenderUtils.enableDiffuseLightingGui3D();
+        RenderUtils.color(1f, 1f, 1f, 1f);
+
+        for (int i = 0; i < count; ++i)
+        {
+            drawContext.drawItem(this.stacks.get(i), this.positions[i * 2], this.positions[i * 2 + 1]);
+        }
+
+        RenderUtils.color(1f, 1f, 1f, 1f);
+
+        for (int i = 0; i < count; ++i)
+        {
+            drawContext.drawStackOverlay(mc.textRenderer, this.stacks.get(i), this.positions[i * 2], this.positions[i * 2 + 1]);
+        }
+
+        RenderUtils.forceDraw(drawContext);
+        RenderUtils.color(1f, 1f, 1f, 1f);
+
+        this.clear();
+    }
+
+    public void clear()
+    {
+        this.stacks.clear();
+    }
+}
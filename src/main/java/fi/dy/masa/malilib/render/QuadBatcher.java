@@ -0,0 +1,211 @@
+package fi.dy.masa.malilib.render;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fStack;
+import org.lwjgl.opengl.GL11;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.gl.ShaderProgram;
+import net.minecraft.client.gl.ShaderProgramKey;
+import net.minecraft.client.gl.ShaderProgramKeys;
+import net.minecraft.client.render.BufferBuilder;
+import net.minecraft.client.render.BufferRenderer;
+import net.minecraft.client.render.BuiltBuffer;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexFormat;
+import net.minecraft.client.render.VertexFormats;
+import net.minecraft.client.util.BufferAllocator;
+
+import fi.dy.masa.malilib.MaLiLibConfigs;
+
+/**
+ * Collects the immediate mode GUI quads from {@link RenderUtils#drawRect(int, int, int, int, int)}
+ * and {@link RenderUtils#drawTexturedRect(int, int, int, int, int, int)} (and everything built on them)
+ * into one buffer, and only draws them when the render state changes, or when the batch is flushed.
+ * The render state consists of the shader, the bound texture, the shader color and the model view matrix.
+ * Batching only happens between {@link #begin()} and {@link #end()}, and only if
+ * {@link MaLiLibConfigs.Generic#BATCHED_GUI_RENDERING} is enabled.
+ * Flushing the batch restores the shader, the blend state and the other state it changed,
+ * so it doesn't affect any draws that come after it.
+ */
+public class QuadBatcher
+{
+    private static final QuadBatcher INSTANCE = new QuadBatcher();
+    private static final float PIXEL_WIDTH = 0.00390625F;
+
+    private final Matrix4f modelViewMatrix = new Matrix4f();
+    private final float[] shaderColor = new float[4];
+    @Nullable private BufferAllocator allocator;
+    @Nullable private BufferBuilder buffer;
+    @Nullable private ShaderProgramKey shader;
+    private int textureId;
+    private int depth;
+    private boolean enabled;
+
+    public static QuadBatcher getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts a batching scope. The scopes can be nested, and the quads
+     * get drawn at the latest when the outermost scope ends.
+     */
+    public void begin()
+    {
+        if (this.depth++ == 0)
+        {
+            this.enabled = MaLiLibConfigs.Generic.BATCHED_GUI_RENDERING.getBooleanValue();
+        }
+    }
+
+    /**
+     * Ends a batching scope, and draws all the pending quads if this was the outermost scope.
+     */
+    public void end()
+    {
+        if (this.depth > 0 && --this.depth == 0)
+        {
+            this.flush();
+            this.enabled = false;
+        }
+    }
+
+    public boolean isBatching()
+    {
+        return this.enabled && this.depth > 0;
+    }
+
+    public void addRect(float left, float top, float right, float bottom, float zLevel, int color)
+    {
+        float a = (float) (color >> 24 & 255) / 255.0F;
+        float r = (float) (color >> 16 & 255) / 255.0F;
+        float g = (float) (color >>  8 & 255) / 255.0F;
+        float b = (float) (color & 255) / 255.0F;
+        BufferBuilder buffer = this.getBuffer(ShaderProgramKeys.POSITION_COLOR, -1, VertexFormats.POSITION_COLOR);
+
+        buffer.vertex(left,  top,    zLevel).color(r, g, b, a);
+        buffer.vertex(left,  bottom, zLevel).color(r, g, b, a);
+        buffer.vertex(right, bottom, zLevel).color(r, g, b, a);
+        buffer.vertex(right, top,    zLevel).color(r, g, b, a);
+    }
+
+    /**
+     * Adds a textured quad using the currently bound shader texture, with a 256 x 256 texture size
+     */
+    public void addTexturedRect(int x, int y, int u, int v, int width, int height, float zLevel)
+    {
+        BufferBuilder buffer = this.getBuffer(ShaderProgramKeys.POSITION_TEX, RenderSystem.getShaderTexture(0), VertexFormats.POSITION_TEXTURE);
+
+        buffer.vertex(x        , y + height, zLevel).texture( u          * PIXEL_WIDTH, (v + height) * PIXEL_WIDTH);
+        buffer.vertex(x + width, y + height, zLevel).texture((u + width) * PIXEL_WIDTH, (v + height) * PIXEL_WIDTH);
+        buffer.vertex(x + width, y         , zLevel).texture((u + width) * PIXEL_WIDTH,  v           * PIXEL_WIDTH);
+        buffer.vertex(x        , y         , zLevel).texture( u          * PIXEL_WIDTH,  v           * PIXEL_WIDTH);
+    }
+
+    private BufferBuilder getBuffer(ShaderProgramKey shader, int textureId, VertexFormat format)
+    {
+        if (this.buffer != null && this.stateMatches(shader, textureId) == false)
+        {
+            this.flush();
+        }
+
+        if (this.buffer == null)
+        {
+            if (this.allocator == null)
+            {
+                this.allocator = new BufferAllocator(RenderLayer.DEFAULT_BUFFER_SIZE);
+            }
+
+            this.buffer = new BufferBuilder(this.allocator, VertexFormat.DrawMode.QUADS, format);
+            this.shader = shader;
+            this.textureId = textureId;
+            this.modelViewMatrix.set(RenderSystem.getModelViewMatrix());
+            System.arraycopy(RenderSystem.getShaderColor(), 0, this.shaderColor, 0, 4);
+        }
+
+        return this.buffer;
+    }
+
+    private boolean stateMatches(ShaderProgramKey shader, int textureId)
+    {
+        return shader == this.shader &&
+               textureId == this.textureId &&
+               Arrays.equals(this.shaderColor, RenderSystem.getShaderColor()) &&
+               this.modelViewMatrix.equals(RenderSystem.getModelViewMatrix());
+    }
+
+    /**
+     * Draws all the pending quads, using the render state they were added with,
+     * and then restores the render state that was active before the flush
+     */
+    public void flush()
+    {
+        if (this.buffer == null)
+        {
+            return;
+        }
+
+        BufferBuilder buffer = this.buffer;
+        this.buffer = null;
+        BuiltBuffer builtBuffer = buffer.endNullable();
+
+        if (builtBuffer == null)
+        {
+            return;
+        }
+
+        // The state may have already been changed by the caller, so temporarily restore the state of the batch
+        float[] color = RenderSystem.getShaderColor();
+        float r = color[0], g = color[1], b = color[2], a = color[3];
+        int boundTexture = RenderSystem.getShaderTexture(0);
+        ShaderProgram shaderBefore = RenderSystem.getShader();
+        boolean blendBefore = GL11.glIsEnabled(GL11.GL_BLEND);
+        Matrix4fStack modelViewStack = RenderSystem.getModelViewStack();
+
+        modelViewStack.pushMatrix();
+        modelViewStack.set(this.modelViewMatrix);
+        RenderSystem.setShaderColor(this.shaderColor[0], this.shaderColor[1], this.shaderColor[2], this.shaderColor[3]);
+        RenderSystem.setShader(this.shader);
+
+        if (this.textureId != -1)
+        {
+            RenderSystem.setShaderTexture(0, this.textureId);
+        }
+
+        RenderUtils.setupBlend();
+
+        try
+        {
+            BufferRenderer.drawWithGlobalProgram(builtBuffer);
+            builtBuffer.close();
+        }
+        catch (Exception ignored) { }
+
+        if (blendBefore == false)
+        {
+            RenderSystem.disableBlend();
+        }
+
+        RenderSystem.setShader(shaderBefore);
+        RenderSystem.setShaderTexture(0, boundTexture);
+        RenderSystem.setShaderColor(r, g, b, a);
+        modelViewStack.popMatrix();
+    }
+
+    /**
+     * Releases the native buffer memory. The batcher can still be used after this.
+     */
+    public void close()
+    {
+        this.flush();
+
+        if (this.allocator != null)
+        {
+            this.allocator.close();
+            this.allocator = null;
+        }
+    }
+}
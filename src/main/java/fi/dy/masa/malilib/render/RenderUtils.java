@@ -22,7 +22,6 @@ import net.minecraft.client.render.*;
 import net.minecraft.client.render.model.BakedModel;
 import net.minecraft.client.render.model.BakedQuad;
 import net.minecraft.client.texture.Sprite;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.component.ComponentMap;
 import net.minecraft.component.DataComponentTypes;
@@ -32,14 +31,12 @@ import net.minecraft.entity.Entity;
 import net.minecraft.entity.effect.StatusEffect;
 import net.minecraft.entity.effect.StatusEffectInstance;
 import net.minecraft.entity.player.PlayerEntity;
-import net.minecraft.inventory.Inventory;
 import net.minecraft.item.*;
 import net.minecraft.item.map.MapState;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.screen.PlayerScreenHandler;
 import net.minecraft.util.DyeColor;
 import net.minecraft.util.Identifier;
-import net.minecraft.util.collection.DefaultedList;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.MathHelper;
@@ -121,6 +118,7 @@ public class RenderUtils
      */
     public static void forceDraw(DrawContext drawContext)
     {
+        QuadBatcher.getInstance().flush();
         drawContext.draw();
     }
 
@@ -203,6 +201,18 @@ public class RenderUtils
 
     public static void drawRect(int x, int y, int width, int height, int color, float zLevel, float scale)
     {
+        QuadBatcher batcher = QuadBatcher.getInstance();
+
+        if (batcher.isBatching())
+        {
+            batcher.addRect(x * scale, y * scale, (x + width) * scale, (y + height) * scale, zLevel, color);
+            // Leave the same render state behind as the immediate path below
+            RenderSystem.setShader(ShaderProgramKeys.POSITION_COLOR);
+            setupBlend();
+            RenderSystem.disableBlend();
+            return;
+        }
+
         float a = (float) (color >> 24 & 255) / 255.0F;
         float r = (float) (color >> 16 & 255) / 255.0F;
         float g = (float) (color >>  8 & 255) / 255.0F;
@@ -245,6 +255,17 @@ public class RenderUtils
 
     public static void drawTexturedRect(int x, int y, int u, int v, int width, int height, float zLevel)
     {
+        QuadBatcher batcher = QuadBatcher.getInstance();
+
+        if (batcher.isBatching())
+        {
+            batcher.addTexturedRect(x, y, u, v, width, height, zLevel);
+            // Leave the same render state behind as the immediate path below
+            RenderSystem.setShader(ShaderProgramKeys.POSITION_TEX);
+            setupBlend();
+            return;
+        }
+
         float pixelWidth = 0.00390625F;
         RenderSystem.setShader(ShaderProgramKeys.POSITION_TEX);
         //RenderSystem.setShader(GameRenderer::getPositionTexProgram);
@@ -440,6 +461,7 @@ public class RenderUtils
         int eg = (endColor >>  8 & 0xFF);
         int eb = (endColor & 0xFF);
 
+        QuadBatcher.getInstance().flush();
         setupBlend();
         //RenderSystem.enableBlend();
         RenderSystem.setShader(ShaderProgramKeys.POSITION_COLOR);
@@ -522,6 +544,11 @@ public class RenderUtils
         }
     }
 
+    /**
+     * Renders the HUD text lines without caching anything between calls.
+     * If you render the same lines every frame, then use your own {@link HudTextBlock} instance
+     * instead, so that the layout stays cached between frames.
+     */
     public static int renderText(int xOff, int yOff, double scale, int textColor, int bgColor,
             HudAlignment alignment, boolean useBackground, boolean useShadow, List<String> lines,
             DrawContext drawContext)
@@ -538,25 +565,20 @@ public class RenderUtils
             return 0;
         }
 
-        // RenderSystem's 'modelViewStack' was changed to a Matrix4fStack method
-        //Matrix4fStack global4fStack = RenderSystem.getModelViewStack();
         boolean scaled = scale != 1.0;
 
         if (scaled)
         {
-            if (scale != 0)
-            {
-                xOff = (int) (xOff * scale);
-                yOff = (int) (yOff * scale);
-            }
+            xOff = (int) (xOff * scale);
+            yOff = (int) (yOff * scale);
 
             drawContext.getMatrices().push();
             drawContext.getMatrices().scale((float) scale, (float) scale, 1.0f);
-            //global4fStack.pushMatrix();
-            //global4fStack.scale((float) scale, (float) scale, 1.0f);
-            //RenderSystem.applyModelViewMatrix();
         }
 
+        QuadBatcher batcher = QuadBatcher.getInstance();
+        final float bgScale = (float) scale;
+        final int bgHeight = bgMargin + fontRenderer.fontHeight;
         double posX = xOff + bgMargin;
         double posY = yOff + bgMargin;
 
@@ -585,18 +607,25 @@ public class RenderUtils
 
             if (useBackground)
             {
-                drawRect(x - bgMargin, y - bgMargin, width + bgMargin, bgMargin + fontRenderer.fontHeight, bgColor, 0f, (float) scale);
+                int bgX = x - bgMargin;
+                int bgY = y - bgMargin;
+                batcher.addRect(bgX * bgScale, bgY * bgScale, (bgX + width + bgMargin) * bgScale, (bgY + bgHeight) * bgScale, 0f, bgColor);
             }
 
             drawContext.drawText(fontRenderer, line, x, y, textColor, useShadow);
-            forceDraw(drawContext);
         }
 
+        // The text only gets drawn in the forceDraw() call, so the backgrounds still end up below it
+        if (useBackground)
+        {
+            batcher.flush();
+        }
+
+        forceDraw(drawContext);
+
         if (scaled)
         {
-            //global4fStack.popMatrix();
             drawContext.getMatrices().pop();
-            //RenderSystem.applyModelViewMatrix();
         }
 
         return contentHeight + bgMargin * 2;
@@ -984,14 +1013,14 @@ public class RenderUtils
             {
                 RenderSystem.depthMask(false);
                 RenderSystem.disableDepthTest();
-                VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(new BufferAllocator(RenderLayer.DEFAULT_BUFFER_SIZE));
+                VertexConsumerProvider.Immediate immediate = GuiPreviewBuffers.getInstance().getConsumers();
                 textRenderer.draw(line, -strLenHalf, textY, 0x20000000 | (textColor & 0xFFFFFF), false, modelMatrix, immediate, TextRenderer.TextLayerType.SEE_THROUGH, 0, 15728880);
                 immediate.draw();
                 RenderSystem.enableDepthTest();
                 RenderSystem.depthMask(true);
             }
 
-            VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(new BufferAllocator(RenderLayer.DEFAULT_BUFFER_SIZE));
+            VertexConsumerProvider.Immediate immediate = GuiPreviewBuffers.getInstance().getConsumers();
             textRenderer.draw(line, -strLenHalf, textY, textColor, false, modelMatrix, immediate, TextRenderer.TextLayerType.SEE_THROUGH, 0, 15728880);
             immediate.draw();
             textY += textRenderer.fontHeight;
@@ -1302,15 +1331,16 @@ public class RenderUtils
                 x1 += 8;
                 y1 += 8;
                 z = 310;
-                VertexConsumerProvider.Immediate consumer = VertexConsumerProvider.immediate(new BufferAllocator(RenderLayer.DEFAULT_BUFFER_SIZE));
+                GuiPreviewBuffers buffers = GuiPreviewBuffers.getInstance();
+                VertexConsumerProvider.Immediate consumer = buffers.getConsumers();
                 double scale = (double) (dimensions - 16) / 128.0D;
 
-                MatrixStack matrixStack = new MatrixStack();
+                MatrixStack matrixStack = buffers.getMatrixStack();
                 matrixStack.push();
                 matrixStack.translate(x1, y1, z);
                 matrixStack.scale((float) scale, (float) scale, 0);
 
-                MapRenderState mapRenderState = new MapRenderState();
+                MapRenderState mapRenderState = buffers.getMapRenderState(mapId);
                 mc().getMapRenderer().update(mapId, mapState, mapRenderState);
                 mc().getMapRenderer().draw(mapRenderState, matrixStack, consumer, false, uv);
                 consumer.draw();
@@ -1321,129 +1351,71 @@ public class RenderUtils
 
     public static void renderShulkerBoxPreview(ItemStack stack, int baseX, int baseY, boolean useBgColors, DrawContext drawContext)
     {
-        DefaultedList<ItemStack> items;
-
         if (stack.getComponents().contains(DataComponentTypes.CONTAINER))
         {
-            //items = InventoryUtils.getStoredItems(stack, ShulkerBoxBlockEntity.INVENTORY_SIZE);
-            items = InventoryUtils.getStoredItems(stack, -1);
+            // The decoded contents are cached, so hovering over the same item doesn't decode them again every frame
+            ItemPreviewCache.Preview preview = ItemPreviewCache.getInstance().getContainerPreview(stack);
 
-            if (items.isEmpty())
+            if (preview == null || preview.isEmpty())
             {
                 return;
             }
 
-            NbtCompound nbt = InventoryUtils.getStoredBlockEntityNbt(stack);
-            Set<Integer> lockedSlots = new HashSet<>();
-            Inventory inv = InventoryUtils.getAsInventory(items);
-            InventoryOverlay.InventoryRenderType type = InventoryOverlay.getInventoryType(stack);
-            InventoryOverlay.InventoryProperties props = InventoryOverlay.getInventoryPropsTemp(type, items.size());
-
-            int screenWidth = GuiUtils.getScaledWindowWidth();
-            int screenHeight = GuiUtils.getScaledWindowHeight();
-            int height = props.height + 18;
-            int x = MathHelper.clamp(baseX + 8, 0, screenWidth - props.width);
-            int y = MathHelper.clamp(baseY - height, 0, screenHeight - height);
-
-            // Mask items behind the shulker box display, trying to minimize the sharp corners
-            drawTexturedRect(GuiBase.BG_TEXTURE, x + 1, y + 1, 0, 0, props.width - 2, props.height - 2, drawContext);
-
-            if (stack.getItem() instanceof BlockItem && ((BlockItem) stack.getItem()).getBlock() instanceof ShulkerBoxBlock)
-            {
-                setShulkerboxBackgroundTintColor((ShulkerBoxBlock) ((BlockItem) stack.getItem()).getBlock(), useBgColors);
-            }
-            else
-            {
-                color(1f, 1f, 1f, 1f);
-            }
-
-            disableDiffuseLighting();
-
-            Matrix4fStack matrix4fStack = RenderSystem.getModelViewStack();
-            matrix4fStack.pushMatrix();
-            matrix4fStack.translate(0, 0, 500);
-            //drawContext.getMatrices().push();
-            //drawContext.getMatrices().translate(0, 0, 500);
-            //RenderSystem.applyModelViewMatrix();
-
-            InventoryOverlay.renderInventoryBackground(type, x, y, props.slotsPerRow, props.totalSlots, mc());
-            color(1f, 1f, 1f, 1f);
-
-            enableDiffuseLightingGui3D();
-
-            // TODO 1.21.4+
-            /*
-            if (type == InventoryOverlay.InventoryRenderType.BREWING_STAND)
-            {
-                InventoryOverlay.renderBrewerBackgroundSlots(inv, x, y, drawContext);
-            }
-             */
-            if (type == InventoryOverlay.InventoryRenderType.CRAFTER && !nbt.isEmpty())
-            {
-                lockedSlots = BlockUtils.getDisabledSlotsFromNbt(nbt);
-                InventoryOverlay.renderInventoryStacks(type, inv, x + props.slotOffsetX, y + props.slotOffsetY, props.slotsPerRow, 0, -1, lockedSlots, mc(), drawContext);
-            }
-            else
-            {
-                InventoryOverlay.renderInventoryStacks(type, inv, x + props.slotOffsetX, y + props.slotOffsetY, props.slotsPerRow, 0, -1, mc(), drawContext);
-            }
-
-            matrix4fStack.popMatrix();
-            //drawContext.getMatrices().pop();
-            //forceDraw(drawContext);
-            //RenderSystem.applyModelViewMatrix();
+            renderCachedPreview(preview, -1, baseX, baseY, useBgColors, drawContext);
         }
     }
 
     public static void renderBundlePreview(ItemStack stack, int baseX, int baseY, boolean useBgColors, DrawContext drawContext)
     {
-        DefaultedList<ItemStack> items;
-
         if (stack.getComponents().contains(DataComponentTypes.BUNDLE_CONTENTS))
         {
-            int count = InventoryUtils.bundleCountItems(stack);
-            items = InventoryUtils.getBundleItems(stack, count);
+            ItemPreviewCache.Preview preview = ItemPreviewCache.getInstance().getBundlePreview(stack);
 
-            if (items.isEmpty())
+            if (preview == null || preview.isEmpty())
             {
                 return;
             }
 
-            Inventory inv = InventoryUtils.getAsInventory(items);
-            InventoryOverlay.InventoryRenderType type = InventoryOverlay.getInventoryType(stack);
-            InventoryOverlay.InventoryProperties props = InventoryOverlay.getInventoryPropsTemp(type, count);
+            renderCachedPreview(preview, preview.getSlotCount(), baseX, baseY, useBgColors, drawContext);
+        }
+    }
 
-            int screenWidth = GuiUtils.getScaledWindowWidth();
-            int screenHeight = GuiUtils.getScaledWindowHeight();
-            int height = props.height + 18;
-            int x = MathHelper.clamp(baseX + 8, 0, screenWidth - props.width);
-            int y = MathHelper.clamp(baseY - height, 0, screenHeight - height);
+    private static void renderCachedPreview(ItemPreviewCache.Preview preview, int maxSlots, int baseX, int baseY, boolean useBgColors, DrawContext drawContext)
+    {
+        InventoryOverlay.InventoryRenderType type = preview.getType();
+        InventoryOverlay.InventoryProperties props = InventoryOverlay.getInventoryPropsTemp(type, preview.getSlotCount());
 
-            // Mask items behind the shulker box display, trying to minimize the sharp corners
-            drawTexturedRect(GuiBase.BG_TEXTURE, x + 1, y + 1, 0, 0, props.width - 2, props.height - 2, drawContext);
+        int screenWidth = GuiUtils.getScaledWindowWidth();
+        int screenHeight = GuiUtils.getScaledWindowHeight();
+        int height = props.height + 18;
+        int x = MathHelper.clamp(baseX + 8, 0, screenWidth - props.width);
+        int y = MathHelper.clamp(baseY - height, 0, screenHeight - height);
 
-            setBundleBackgroundTintColor(stack, useBgColors);
-            disableDiffuseLighting();
+        // Mask items behind the shulker box display, trying to minimize the sharp corners
+        drawTexturedRect(GuiBase.BG_TEXTURE, x + 1, y + 1, 0, 0, props.width - 2, props.height - 2, drawContext);
 
-            Matrix4fStack matrix4fStack = RenderSystem.getModelViewStack();
-            matrix4fStack.pushMatrix();
-            matrix4fStack.translate(0, 0, 500);
-            //drawContext.getMatrices().push();
-            //drawContext.getMatrices().translate(0, 0, 500);
-            //RenderSystem.applyModelViewMatrix();
+        preview.applyBackgroundTint(useBgColors);
+        disableDiffuseLighting();
 
-            InventoryOverlay.renderInventoryBackground(type, x, y, props.slotsPerRow, props.totalSlots, mc());
-            color(1f, 1f, 1f, 1f);
+        Matrix4fStack matrix4fStack = RenderSystem.getModelViewStack();
+        matrix4fStack.pushMatrix();
+        matrix4fStack.translate(0, 0, 500);
 
-            enableDiffuseLightingGui3D();
+        InventoryOverlay.renderInventoryBackground(type, x, y, props.slotsPerRow, props.totalSlots, mc());
+        color(1f, 1f, 1f, 1f);
 
-            InventoryOverlay.renderInventoryStacks(type, inv, x + props.slotOffsetX, y + props.slotOffsetY, props.slotsPerRow, 0, count, mc(), drawContext);
+        enableDiffuseLightingGui3D();
 
-            matrix4fStack.popMatrix();
-            //drawContext.getMatrices().pop();
-            //forceDraw(drawContext);
-            //RenderSystem.applyModelViewMatrix();
+        // TODO 1.21.4+
+        /*
+        if (type == InventoryOverlay.InventoryRenderType.BREWING_STAND)
+        {
+            InventoryOverlay.renderBrewerBackgroundSlots(inv, x, y, drawContext);
         }
+         */
+        InventoryOverlay.renderInventoryStacks(type, preview.getInventory(), x + props.slotOffsetX, y + props.slotOffsetY, props.slotsPerRow, 0, maxSlots, preview.getLockedSlots(), mc(), drawContext);
+
+        matrix4fStack.popMatrix();
     }
 
     /**
@@ -1462,19 +1434,15 @@ public class RenderUtils
     {
         if (InventoryUtils.hasNbtItems(itemsTag))
         {
-            if (mc().world == null)
-            {
-                return;
-            }
-            DefaultedList<ItemStack> items = InventoryUtils.getNbtItems(itemsTag, -1, mc().world.getRegistryManager());
+            ItemPreviewCache.Preview preview = ItemPreviewCache.getInstance().getNbtItemsPreview(stackIn, itemsTag);
 
-            if (items.size() == 0)
+            if (preview == null || preview.isEmpty())
             {
                 return;
             }
 
-            InventoryOverlay.InventoryRenderType type = InventoryOverlay.getInventoryType(stackIn);
-            InventoryOverlay.InventoryProperties props = InventoryOverlay.getInventoryPropsTemp(type, items.size());
+            InventoryOverlay.InventoryRenderType type = preview.getType();
+            InventoryOverlay.InventoryProperties props = InventoryOverlay.getInventoryPropsTemp(type, preview.getSlotCount());
 
             int screenWidth = GuiUtils.getScaledWindowWidth();
             int screenHeight = GuiUtils.getScaledWindowHeight();
@@ -1495,12 +1463,11 @@ public class RenderUtils
             //drawContext.getMatrices().translate(0, 0, 500);
             //RenderSystem.applyModelViewMatrix();
 
-            InventoryOverlay.renderInventoryBackground(type, x, y, props.slotsPerRow, items.size(), mc());
+            InventoryOverlay.renderInventoryBackground(type, x, y, props.slotsPerRow, preview.getSlotCount(), mc());
 
             enableDiffuseLightingGui3D();
 
-            Inventory inv = InventoryUtils.getAsInventory(items);
-            InventoryOverlay.renderInventoryStacks(type, inv, x + props.slotOffsetX, y + props.slotOffsetY, props.slotsPerRow, 0, -1, mc(), drawContext);
+            InventoryOverlay.renderInventoryStacks(type, preview.getInventory(), x + props.slotOffsetX, y + props.slotOffsetY, props.slotsPerRow, 0, -1, mc(), drawContext);
 
             matrix4fStack.popMatrix();
             //drawContext.getMatrices().pop();
@@ -0,0 +1,102 @@
+package fi.dy.masa.malilib.util;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
+import com.google.gson.JsonObject;
+
+/**
+ * Writes JSON files on a background thread, for {@link fi.dy.masa.malilib.config.IConfigManager#writeConfigFileAsync(JsonObject, File)}.
+ * Multiple writes to the same file that are queued before the writer gets to them
+ * are coalesced into one write of the latest data.
+ * Reads via {@link JsonUtils#parseJsonFile(File)} see the queued data.
+ */
+public class AsyncJsonWriter
+{
+    private static final AsyncJsonWriter INSTANCE = new AsyncJsonWriter();
+
+    private final Map<File, JsonObject> pendingWrites = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor((r) -> {
+        Thread thread = new Thread(r, "MaLiLib Config Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static AsyncJsonWriter getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues the JSON data to be written to the given file.
+     * The data must not be modified after this call.
+     */
+    public void submit(JsonObject root, File file)
+    {
+        synchronized (this.pendingWrites)
+        {
+            this.pendingWrites.put(file.getAbsoluteFile(), root);
+        }
+
+        this.executor.execute(this::writePending);
+    }
+
+    /**
+     * Returns a copy of the data queued to be written to the given file, if any
+     */
+    @Nullable
+    public JsonObject getPendingData(File file)
+    {
+        synchronized (this.pendingWrites)
+        {
+            JsonObject root = this.pendingWrites.get(file.getAbsoluteFile());
+            return root != null ? root.deepCopy() : null;
+        }
+    }
+
+    /**
+     * Writes all the queued data on the calling thread, after any write in progress has finished.
+     * This is used before shutting down, and before (re-)loading the configs from disk.
+     */
+    public void flush()
+    {
+        this.writePending();
+    }
+
+    private void writePending()
+    {
+        while (true)
+        {
+            // Only one thread writes at a time, and it always picks the latest data for a file,
+            // so an older write can never overwrite a newer one
+            synchronized (this)
+            {
+                File file;
+                JsonObject root;
+
+                synchronized (this.pendingWrites)
+                {
+                    if (this.pendingWrites.isEmpty())
+                    {
+                        return;
+                    }
+
+                    Map.Entry<File, JsonObject> entry = this.pendingWrites.entrySet().iterator().next();
+                    file = entry.getKey();
+                    root = entry.getValue();
+                }
+
+                JsonUtils.writeJsonToFileAtomic(root, file);
+
+                synchronized (this.pendingWrites)
+                {
+                    // Keep the entry if newer data was queued while writing, so that it gets written next
+                    this.pendingWrites.remove(file, root);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package fi.dy.masa.malilib.util;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable, pre-resolved form of a layer range, for the hot per-block and per-section checks.
+ * The layer mode and the axis are resolved once into an axis index and inclusive min/max values,
+ * so the checks don't need to switch on the mode and the axis for every position.
+ * Get the current instance via {@link LayerRange#getCompiled()}; a new instance
+ * is created whenever the range changes, so an instance can be safely shared between threads.
+ */
+public final class CompiledLayerRange
+{
+    public static final int AXIS_ALL = -1;
+    public static final int AXIS_X = 0;
+    public static final int AXIS_Y = 1;
+    public static final int AXIS_Z = 2;
+
+    public static final CompiledLayerRange ALL = new CompiledLayerRange(AXIS_ALL, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    /** The axis index, or {@link #AXIS_ALL} if the range includes everything */
+    public final int axis;
+    /** The inclusive minimum coordinate on the axis */
+    public final int min;
+    /** The inclusive maximum coordinate on the axis */
+    public final int max;
+
+    private CompiledLayerRange(int axis, int min, int max)
+    {
+        this.axis = axis;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @param axis the axis index, one of {@link #AXIS_X}, {@link #AXIS_Y} or {@link #AXIS_Z}
+     * @param min the inclusive minimum coordinate on the axis
+     * @param max the inclusive maximum coordinate on the axis
+     */
+    public static CompiledLayerRange of(int axis, int min, int max)
+    {
+        if (axis < AXIS_X || axis > AXIS_Z)
+        {
+            return ALL;
+        }
+
+        return new CompiledLayerRange(axis, min, max);
+    }
+
+    public boolean isAll()
+    {
+        return this.axis == AXIS_ALL;
+    }
+
+    public boolean isValueWithinRange(int value)
+    {
+        return value >= this.min && value <= this.max;
+    }
+
+    public boolean isPositionWithinRange(int x, int y, int z)
+    {
+        switch (this.axis)
+        {
+            case AXIS_ALL:  return true;
+            case AXIS_X:    return x >= this.min && x <= this.max;
+            case AXIS_Y:    return y >= this.min && y <= this.max;
+            default:        return z >= this.min && z <= this.max;
+        }
+    }
+
+    public boolean intersectsBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
+    {
+        switch (this.axis)
+        {
+            case AXIS_ALL:  return true;
+            case AXIS_X:    return maxX >= this.min && minX <= this.max;
+            case AXIS_Y:    return maxY >= this.min && minY <= this.max;
+            default:        return maxZ >= this.min && minZ <= this.max;
+        }
+    }
+
+    public boolean intersects(IntBoundingBox box)
+    {
+        return this.intersectsBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    /**
+     * @return true if the 16x16x16 chunk section at the given section coordinates intersects this range
+     */
+    public boolean intersectsSection(int sectionX, int sectionY, int sectionZ)
+    {
+        switch (this.axis)
+        {
+            case AXIS_ALL:  return true;
+            case AXIS_X:    return (sectionX << 4) + 15 >= this.min && (sectionX << 4) <= this.max;
+            case AXIS_Y:    return (sectionY << 4) + 15 >= this.min && (sectionY << 4) <= this.max;
+            default:        return (sectionZ << 4) + 15 >= this.min && (sectionZ << 4) <= this.max;
+        }
+    }
+
+    /**
+     * @return true if the whole 16x16x16 chunk section at the given section coordinates is within this range,
+     *         so that the per-block checks can be skipped for it
+     */
+    public boolean containsSection(int sectionX, int sectionY, int sectionZ)
+    {
+        switch (this.axis)
+        {
+            case AXIS_ALL:  return true;
+            case AXIS_X:    return (sectionX << 4) >= this.min && (sectionX << 4) + 15 <= this.max;
+            case AXIS_Y:    return (sectionY << 4) >= this.min && (sectionY << 4) + 15 <= this.max;
+            default:        return (sectionZ << 4) >= this.min && (sectionZ << 4) + 15 <= this.max;
+        }
+    }
+
+    /**
+     * @return the part of the given box that is within this range, or null if they don't intersect
+     */
+    @Nullable
+    public IntBoundingBox clipBox(IntBoundingBox box)
+    {
+        if (this.axis == AXIS_ALL)
+        {
+            return box;
+        }
+
+        return this.clipBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    /**
+     * @return the part of the given box that is within this range, or null if they don't intersect
+     */
+    @Nullable
+    public IntBoundingBox clipBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
+    {
+        switch (this.axis)
+        {
+            case AXIS_ALL:
+                return new IntBoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+            case AXIS_X:
+                minX = Math.max(minX, this.min);
+                maxX = Math.min(maxX, this.max);
+                break;
+            case AXIS_Y:
+                minY = Math.max(minY, this.min);
+                maxY = Math.min(maxY, this.max);
+                break;
+            default:
+                minZ = Math.max(minZ, this.min);
+                maxZ = Math.min(maxZ, this.max);
+        }
+
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+        {
+            return null;
+        }
+
+        return new IntBoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * @return the part of the 16x16x16 chunk section at the given section coordinates
+     *         that is within this range, or null if they don't intersect
+     */
+    @Nullable
+    public IntBoundingBox clipSection(int sectionX, int sectionY, int sectionZ)
+    {
+        int minX = sectionX << 4;
+        int minY = sectionY << 4;
+        int minZ = sectionZ << 4;
+
+        return this.clipBox(minX, minY, minZ, minX + 15, minY + 15, minZ + 15);
+    }
+
+    /**
+     * @return the clipped minimum coordinate of the given range on the given axis.
+     *         If the returned value is larger than {@link #getClippedMax(int, int)}, then the range is empty.
+     */
+    public int getClippedMin(int axis, int min)
+    {
+        return axis == this.axis ? Math.max(min, this.min) : min;
+    }
+
+    /**
+     * @return the clipped maximum coordinate of the given range on the given axis.
+     *         If the returned value is smaller than {@link #getClippedMin(int, int)}, then the range is empty.
+     */
+    public int getClippedMax(int axis, int max)
+    {
+        return axis == this.axis ? Math.min(max, this.max) : max;
+    }
+
+    /**
+     * Visits the parts of the given box that are within this range, split along the chunk section borders.
+     * The box is clipped to the range once up front, so sections outside of the range are never visited,
+     * and no objects are allocated during the iteration.
+     * The sections are visited in y, z, x order, with x changing the fastest.
+     * @return false if the visitor stopped the iteration, true otherwise
+     */
+    public boolean forEachClippedSection(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, SectionVisitor visitor)
+    {
+        minX = this.getClippedMin(AXIS_X, minX);
+        minY = this.getClippedMin(AXIS_Y, minY);
+        minZ = this.getClippedMin(AXIS_Z, minZ);
+        maxX = this.getClippedMax(AXIS_X, maxX);
+        maxY = this.getClippedMax(AXIS_Y, maxY);
+        maxZ = this.getClippedMax(AXIS_Z, maxZ);
+
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+        {
+            return true;
+        }
+
+        final int minSectionX = minX >> 4;
+        final int minSectionY = minY >> 4;
+        final int minSectionZ = minZ >> 4;
+        final int maxSectionX = maxX >> 4;
+        final int maxSectionY = maxY >> 4;
+        final int maxSectionZ = maxZ >> 4;
+
+        for (int sy = minSectionY; sy <= maxSectionY; ++sy)
+        {
+            final int y1 = Math.max(minY, sy << 4);
+            final int y2 = Math.min(maxY, (sy << 4) + 15);
+
+            for (int sz = minSectionZ; sz <= maxSectionZ; ++sz)
+            {
+                final int z1 = Math.max(minZ, sz << 4);
+                final int z2 = Math.min(maxZ, (sz << 4) + 15);
+
+                for (int sx = minSectionX; sx <= maxSectionX; ++sx)
+                {
+                    final int x1 = Math.max(minX, sx << 4);
+                    final int x2 = Math.min(maxX, (sx << 4) + 15);
+
+                    if (visitor.visit(sx, sy, sz, x1, y1, z1, x2, y2, z2) == false)
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    public interface SectionVisitor
+    {
+        /**
+         * Called for each chunk section part that is within the range.
+         * All the min and max coordinates are inclusive, and within the chunk section.
+         * @return true to continue the iteration, false to stop it
+         */
+        boolean visit(int sectionX, int sectionY, int sectionZ,
+                      int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+    }
+}
@@ -0,0 +1,341 @@
+package fi.dy.masa.malilib.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.jetbrains.annotations.ApiStatus;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+
+import fi.dy.masa.malilib.interfaces.IInventoryCountListener;
+
+/**
+ * Keeps running item counts for the tracked inventories, including the contents of any Shulker Boxes in them.
+ * The slot changes are reported by the SimpleInventory and ScreenHandler mixins, and on each client tick
+ * only the changed slots are re-counted, after which the listeners get the count deltas.
+ * <br>
+ * Stacks that are modified in place without going through the inventory's setStack()/removeStack()
+ * are not noticed automatically, call {@link #markAllSlotsChanged(Inventory)} after such changes.
+ * <br>
+ * Only use this from the client thread, except for the slot change notifications.
+ */
+public class InventoryCountTracker
+{
+    private static final InventoryCountTracker INSTANCE = new InventoryCountTracker();
+
+    private final Map<Inventory, TrackedInventory> trackedInventories = new Reference2ObjectOpenHashMap<>();
+    private final List<IInventoryCountListener> listeners = new ArrayList<>();
+    private final ItemTypePool typePool = new ItemTypePool();
+    private final Object2IntOpenHashMap<ItemType> deltas = new Object2IntOpenHashMap<>();
+    private volatile boolean hasTrackedInventories;
+
+    public static InventoryCountTracker getInstance()
+    {
+        return INSTANCE;
+    }
+
+    public void registerListener(IInventoryCountListener listener)
+    {
+        if (this.listeners.contains(listener) == false)
+        {
+            this.listeners.add(listener);
+        }
+    }
+
+    public void unregisterListener(IInventoryCountListener listener)
+    {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Starts tracking the item counts of the given inventory.
+     * The initial counts are published to the listeners on the next update.
+     */
+    public void track(Inventory inventory)
+    {
+        synchronized (this.trackedInventories)
+        {
+            this.trackedInventories.computeIfAbsent(inventory, TrackedInventory::new);
+            this.hasTrackedInventories = true;
+        }
+    }
+
+    public void untrack(Inventory inventory)
+    {
+        synchronized (this.trackedInventories)
+        {
+            this.trackedInventories.remove(inventory);
+            this.hasTrackedInventories = this.trackedInventories.isEmpty() == false;
+        }
+    }
+
+    public boolean isTracked(Inventory inventory)
+    {
+        return this.getTracked(inventory) != null;
+    }
+
+    /**
+     * Returns the current item counts of the given tracked inventory, first applying any pending slot changes.
+     * @return a read-only view of the counts, or null if the inventory is not tracked
+     */
+    @Nullable
+    public Object2IntMap<ItemType> getItemCounts(Inventory inventory)
+    {
+        TrackedInventory tracked = this.getTracked(inventory);
+
+        if (tracked == null)
+        {
+            return null;
+        }
+
+        this.update(tracked);
+
+        return Object2IntMaps.unmodifiable(tracked.counts);
+    }
+
+    /**
+     * Marks the given slot of the inventory as changed, if the inventory is tracked
+     */
+    @ApiStatus.Internal
+    public void onSlotChanged(Inventory inventory, int slot)
+    {
+        if (this.hasTrackedInventories)
+        {
+            TrackedInventory tracked = this.getTracked(inventory);
+
+            if (tracked != null)
+            {
+                tracked.markChanged(slot);
+            }
+        }
+    }
+
+    /**
+     * Marks all the slots of the inventory as changed, if the inventory is tracked.
+     * Only the slots whose contents actually differ from the previous update will be re-counted.
+     */
+    public void markAllSlotsChanged(Inventory inventory)
+    {
+        if (this.hasTrackedInventories)
+        {
+            TrackedInventory tracked = this.getTracked(inventory);
+
+            if (tracked != null)
+            {
+                tracked.markAllChanged();
+            }
+        }
+    }
+
+    @ApiStatus.Internal
+    public void onClientTick()
+    {
+        if (this.hasTrackedInventories == false)
+        {
+            return;
+        }
+
+        List<TrackedInventory> list;
+
+        synchronized (this.trackedInventories)
+        {
+            list = new ArrayList<>(this.trackedInventories.values());
+        }
+
+        for (TrackedInventory tracked : list)
+        {
+            this.update(tracked);
+        }
+    }
+
+    /**
+     * Stops tracking all inventories
+     */
+    public void clear()
+    {
+        synchronized (this.trackedInventories)
+        {
+            this.trackedInventories.clear();
+            this.hasTrackedInventories = false;
+        }
+
+        this.typePool.clear();
+    }
+
+    @Nullable
+    private TrackedInventory getTracked(Inventory inventory)
+    {
+        synchronized (this.trackedInventories)
+        {
+            return this.trackedInventories.get(inventory);
+        }
+    }
+
+    private void update(TrackedInventory tracked)
+    {
+        this.deltas.clear();
+
+        if (tracked.update(this.typePool, this.deltas) && this.listeners.isEmpty() == false)
+        {
+            Object2IntMap<ItemType> view = Object2IntMaps.unmodifiable(this.deltas);
+
+            for (IInventoryCountListener listener : this.listeners)
+            {
+                listener.onItemCountsChanged(tracked.inventory, view);
+            }
+        }
+
+        this.deltas.clear();
+    }
+
+    private static class TrackedInventory
+    {
+        private final Inventory inventory;
+        private final Object2IntOpenHashMap<ItemType> counts = new Object2IntOpenHashMap<>();
+        private final BitSet changedSlots = new BitSet();
+        private SlotContents[] slots = new SlotContents[0];
+        private boolean allChanged = true;
+
+        private TrackedInventory(Inventory inventory)
+        {
+            this.inventory = inventory;
+        }
+
+        private synchronized void markChanged(int slot)
+        {
+            if (slot >= 0)
+            {
+                this.changedSlots.set(slot);
+            }
+        }
+
+        private synchronized void markAllChanged()
+        {
+            this.allChanged = true;
+        }
+
+        /**
+         * Re-counts the changed slots, and adds the count changes to the deltas map
+         * @return true if any counts changed
+         */
+        private boolean update(ItemTypePool pool, Object2IntOpenHashMap<ItemType> deltasOut)
+        {
+            BitSet changed;
+            boolean all;
+
+            synchronized (this)
+            {
+                if (this.allChanged == false && this.changedSlots.isEmpty())
+                {
+                    return false;
+                }
+
+                all = this.allChanged;
+                changed = (BitSet) this.changedSlots.clone();
+                this.allChanged = false;
+                this.changedSlots.clear();
+            }
+
+            final int size = this.inventory.size();
+
+            if (size != this.slots.length)
+            {
+                // Remove the counts of the slots that no longer exist
+                for (int slot = size; slot < this.slots.length; ++slot)
+                {
+                    this.setSlotContents(slot, null, deltasOut);
+                }
+
+                SlotContents[] old = this.slots;
+                this.slots = new SlotContents[size];
+                System.arraycopy(old, 0, this.slots, 0, Math.min(old.length, size));
+                all = true;
+            }
+
+            if (all)
+            {
+                for (int slot = 0; slot < size; ++slot)
+                {
+                    this.updateSlot(slot, pool, deltasOut);
+                }
+            }
+            else
+            {
+                for (int slot = changed.nextSetBit(0); slot >= 0 && slot < size; slot = changed.nextSetBit(slot + 1))
+                {
+                    this.updateSlot(slot, pool, deltasOut);
+                }
+            }
+
+            deltasOut.object2IntEntrySet().removeIf((e) -> e.getIntValue() == 0);
+
+            return deltasOut.isEmpty() == false;
+        }
+
+        private void updateSlot(int slot, ItemTypePool pool, Object2IntOpenHashMap<ItemType> deltasOut)
+        {
+            ItemStack stack = this.inventory.getStack(slot);
+            SlotContents old = this.slots[slot];
+
+            if (old != null ? ItemStack.areEqual(old.stack, stack) : stack.isEmpty())
+            {
+                return;
+            }
+
+            SlotContents contents = null;
+
+            if (stack.isEmpty() == false)
+            {
+                Object2IntOpenHashMap<ItemType> slotCounts = new Object2IntOpenHashMap<>(2);
+                InventoryUtils.addItemStackCounts(stack, slotCounts, pool);
+                contents = new SlotContents(stack.copy(), slotCounts);
+            }
+
+            this.setSlotContents(slot, contents, deltasOut);
+        }
+
+        private void setSlotContents(int slot, @Nullable SlotContents contents, Object2IntOpenHashMap<ItemType> deltasOut)
+        {
+            SlotContents old = this.slots[slot];
+
+            if (old != null)
+            {
+                for (Object2IntMap.Entry<ItemType> entry : old.counts.object2IntEntrySet())
+                {
+                    this.addCount(entry.getKey(), -entry.getIntValue(), deltasOut);
+                }
+            }
+
+            if (contents != null)
+            {
+                for (Object2IntMap.Entry<ItemType> entry : contents.counts.object2IntEntrySet())
+                {
+                    this.addCount(entry.getKey(), entry.getIntValue(), deltasOut);
+                }
+            }
+
+            this.slots[slot] = contents;
+        }
+
+        private void addCount(ItemType type, int amount, Object2IntOpenHashMap<ItemType> deltasOut)
+        {
+            if (this.counts.addTo(type, amount) + amount == 0)
+            {
+                this.counts.removeInt(type);
+            }
+
+            deltasOut.addTo(type, amount);
+        }
+    }
+
+    private record SlotContents(ItemStack stack, Object2IntOpenHashMap<ItemType> counts)
+    {
+    }
+}
@@ -1023,17 +1023,31 @@ public class InventoryUtils
     public static Object2IntOpenHashMap<ItemType> getStoredItemCounts(ItemStack stackShulkerBox)
     {
         Object2IntOpenHashMap<ItemType> map = new Object2IntOpenHashMap<>();
-        DefaultedList<ItemStack> items = getStoredItems(stackShulkerBox);
+        addStoredItemCounts(stackShulkerBox, map, null);
+        return map;
+    }
+
+    /**
+     * Adds the stored item counts in the given Shulker Box
+     * (or other storage item with the same NBT data structure) to the given map.
+     *
+     * @param stackShulkerBox
+     * @param countsOut the map to add the counts to
+     * @param pool an optional pool for the ItemType keys, which avoids copying and re-hashing
+     *             the stacks when the same item types are counted repeatedly
+     */
+    public static void addStoredItemCounts(ItemStack stackShulkerBox, Object2IntOpenHashMap<ItemType> countsOut, @Nullable ItemTypePool pool)
+    {
+        ContainerComponent container = stackShulkerBox.get(DataComponentTypes.CONTAINER);
 
-        for (ItemStack stack : items)
+        if (container != null)
         {
-            if (stack.isEmpty() == false)
+            // The contained stacks are not copied, only the keys of new map entries get a copy
+            for (ItemStack stack : container.iterateNonEmpty())
             {
-                map.addTo(new ItemType(stack), stack.getCount());
+                addItemCount(stack, countsOut, pool, true);
             }
         }
-
-        return map;
     }
 
     /**
@@ -1047,30 +1061,71 @@ public class InventoryUtils
     public static Object2IntOpenHashMap<ItemType> getInventoryItemCounts(Inventory inv)
     {
         Object2IntOpenHashMap<ItemType> map = new Object2IntOpenHashMap<>();
+        addInventoryItemCounts(inv, map, null);
+        return map;
+    }
+
+    /**
+     * Adds the stored item counts in the given inventory to the given map.
+     * This also counts the contents of any Shulker Boxes
+     * (or other storage item with the same NBT data structure).
+     * Use the same map and pool for multiple inventories to count the items of a whole storage system.
+     *
+     * @param inv
+     * @param countsOut the map to add the counts to
+     * @param pool an optional pool for the ItemType keys, which avoids copying and re-hashing
+     *             the stacks when the same item types are counted repeatedly
+     */
+    public static void addInventoryItemCounts(Inventory inv, Object2IntOpenHashMap<ItemType> countsOut, @Nullable ItemTypePool pool)
+    {
         final int slots = inv.size();
 
         for (int slot = 0; slot < slots; ++slot)
         {
-            ItemStack stack = inv.getStack(slot);
+            addItemStackCounts(inv.getStack(slot), countsOut, pool);
+        }
+    }
 
-            if (stack.isEmpty() == false)
+    /**
+     * Adds the count of the given stack to the given map. If the stack is a Shulker Box
+     * (or other storage item with the same NBT data structure), then its contents are also counted.
+     * The stack itself is not copied for the map key, unless a pool is used and the type is new.
+     *
+     * @param stack
+     * @param countsOut the map to add the counts to
+     * @param pool an optional pool for the ItemType keys
+     */
+    public static void addItemStackCounts(ItemStack stack, Object2IntOpenHashMap<ItemType> countsOut, @Nullable ItemTypePool pool)
+    {
+        if (stack.isEmpty() == false)
+        {
+            addItemCount(stack, countsOut, pool, false);
+
+            if (stack.getItem() instanceof BlockItem &&
+                ((BlockItem) stack.getItem()).getBlock() instanceof ShulkerBoxBlock)
             {
-                map.addTo(new ItemType(stack, false, true), stack.getCount());
+                addStoredItemCounts(stack, countsOut, pool);
+            }
+        }
+    }
 
-                if (stack.getItem() instanceof BlockItem &&
-                    ((BlockItem) stack.getItem()).getBlock() instanceof ShulkerBoxBlock)
-                {
-                    Object2IntOpenHashMap<ItemType> boxCounts = getStoredItemCounts(stack);
+    private static void addItemCount(ItemStack stack, Object2IntOpenHashMap<ItemType> countsOut,
+                                     @Nullable ItemTypePool pool, boolean copyNewKeys)
+    {
+        if (pool != null)
+        {
+            countsOut.addTo(pool.intern(stack, true), stack.getCount());
+            return;
+        }
 
-                    for (ItemType type : boxCounts.keySet())
-                    {
-                        map.addTo(type, boxCounts.getInt(type));
-                    }
-                }
-            }
+        ItemType type = new ItemType(stack, false, true);
+
+        if (copyNewKeys && countsOut.containsKey(type) == false)
+        {
+            type = new ItemType(stack, true, true);
         }
 
-        return map;
+        countsOut.addTo(type, stack.getCount());
     }
 
     /**
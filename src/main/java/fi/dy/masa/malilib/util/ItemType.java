@@ -10,11 +10,16 @@ import net.minecraft.util.Identifier;
  * A wrapper around ItemStack, that implements hashCode() and equals().
  * Whether or not the NBT data is considered by those methods,
  * depends on the checkNBT argument to the constructor.
+ * The hash code is computed once and then cached, so the wrapped stack
+ * must not be modified while the ItemType is used as a map key.
+ * See {@link ItemTypePool} for re-using the same instances for equal stacks.
  */
 public class ItemType
 {
     private ItemStack stack;
     private final boolean checkNBT;
+    private int hash;
+    private boolean hashCached;
 
     public ItemType(ItemStack stack)
     {
@@ -40,11 +45,29 @@ public class ItemType
     public void setStack(ItemStack stack)
     {
         this.stack = stack;
+        this.hashCached = false;
     }
 
     @Override
     public int hashCode()
     {
+        if (this.hashCached == false)
+        {
+            this.hash = this.computeHashCode();
+            this.hashCached = true;
+        }
+
+        return this.hash;
+    }
+
+    protected int computeHashCode()
+    {
+        // All empty stacks are equal, regardless of the item
+        if (this.stack.isEmpty())
+        {
+            return 0;
+        }
+
         final int prime = 31;
         int result = 1;
         result = prime * result + this.stack.getItem().hashCode();
@@ -69,6 +92,11 @@ public class ItemType
 
         ItemType other = (ItemType) obj;
 
+        if (this.hashCached && other.hashCached && this.hash != other.hash)
+        {
+            return false;
+        }
+
         if (this.stack.isEmpty() || other.stack.isEmpty())
         {
             return this.stack.isEmpty() == other.stack.isEmpty();
@@ -0,0 +1,52 @@
+package fi.dy.masa.malilib.util;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+import net.minecraft.item.ItemStack;
+
+/**
+ * An intern pool of ItemType keys. Equal stacks map to the same ItemType instance,
+ * so the stack's components only need to be hashed once per lookup, no stack is copied
+ * for types that have already been seen, and the map operations with the returned keys
+ * can use the identity check in {@link ItemType#equals(Object)}.
+ * The pooled keys hold their own copies of the stacks.
+ * This class is not thread-safe, use one pool per counting task or per thread.
+ */
+public class ItemTypePool
+{
+    private final Object2ObjectOpenHashMap<ItemType, ItemType> pool = new Object2ObjectOpenHashMap<>();
+    private final ItemType probeNbt = new ItemType(ItemStack.EMPTY, false, true);
+    private final ItemType probeNoNbt = new ItemType(ItemStack.EMPTY, false, false);
+
+    /**
+     * Returns the pooled ItemType for the given stack, creating it if it doesn't exist yet
+     * @param stack the stack to get the type for. It is only copied if the type is new.
+     * @param checkNBT whether the stack's components are part of the type
+     */
+    public ItemType intern(ItemStack stack, boolean checkNBT)
+    {
+        ItemType probe = checkNBT ? this.probeNbt : this.probeNoNbt;
+        probe.setStack(stack);
+
+        ItemType type = this.pool.get(probe);
+        probe.setStack(ItemStack.EMPTY);
+
+        if (type == null)
+        {
+            type = new ItemType(stack, true, checkNBT);
+            this.pool.put(type, type);
+        }
+
+        return type;
+    }
+
+    public int size()
+    {
+        return this.pool.size();
+    }
+
+    public void clear()
+    {
+        this.pool.clear();
+    }
+}
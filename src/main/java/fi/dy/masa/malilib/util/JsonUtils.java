@@ -6,6 +6,9 @@ import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.UUID;
 import javax.annotation.Nonnull;
@@ -396,6 +399,14 @@ public class JsonUtils
     @Nullable
     public static JsonElement parseJsonFile(File file)
     {
+        // Data that is still waiting to be written is newer than what is in the file
+        JsonObject pending = file != null ? AsyncJsonWriter.getInstance().getPendingData(file) : null;
+
+        if (pending != null)
+        {
+            return pending;
+        }
+
         if (file != null && file.exists() && file.isFile() && file.canRead())
         {
             String fileName = file.getAbsolutePath();
@@ -414,6 +425,16 @@ public class JsonUtils
     }
 
     public static boolean writeJsonToFile(JsonObject root, File file)
+    {
+        return writeJsonToFileAtomic(root, file);
+    }
+
+    /**
+     * Writes the JSON data to a temporary file in the same directory,
+     * and then atomically replaces the target file with it (if supported by the file system),
+     * so that a crash during the write never leaves behind a partially written file.
+     */
+    public static boolean writeJsonToFileAtomic(JsonObject root, File file)
     {
         File fileTmp = new File(file.getParentFile(), file.getName() + ".tmp");
 
@@ -422,21 +443,28 @@ public class JsonUtils
             fileTmp = new File(file.getParentFile(), UUID.randomUUID() + ".tmp");
         }
 
-        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(fileTmp), StandardCharsets.UTF_8))
+        try
         {
-            writer.write(GSON.toJson(root));
-            writer.close();
+            try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(fileTmp), StandardCharsets.UTF_8))
+            {
+                GSON.toJson(root, writer);
+            }
 
-            if (file.exists() && file.isFile() && file.delete() == false)
+            try
+            {
+                Files.move(fileTmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
             {
-                MaLiLib.logger.warn("Failed to delete file '{}'", file.getAbsolutePath());
+                Files.move(fileTmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
 
-            return fileTmp.renameTo(file);
+            return true;
         }
         catch (Exception e)
         {
             MaLiLib.logger.warn("Failed to write JSON data to file '{}'", fileTmp.getAbsolutePath(), e);
+            fileTmp.delete();
         }
 
         return false;
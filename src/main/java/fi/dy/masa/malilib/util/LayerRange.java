@@ -26,6 +26,7 @@ public class LayerRange
     protected int layerRangeMax = 0;
     protected boolean hotkeyRangeMin;
     protected boolean hotkeyRangeMax;
+    @Nullable protected CompiledLayerRange compiled;
 
     public LayerRange(IRangeChangeListener refresher)
     {
@@ -115,6 +116,48 @@ public class LayerRange
         return 0;
     }
 
+    /**
+     * Returns the compiled, immutable form of the current range, for fast per-block
+     * and per-section checks and clipping. A new instance is created after the range changes.
+     */
+    public CompiledLayerRange getCompiled()
+    {
+        CompiledLayerRange compiled = this.compiled;
+
+        if (compiled == null)
+        {
+            compiled = this.compile();
+            this.compiled = compiled;
+        }
+
+        return compiled;
+    }
+
+    protected CompiledLayerRange compile()
+    {
+        if (this.layerMode == LayerMode.ALL)
+        {
+            return CompiledLayerRange.ALL;
+        }
+
+        int axis = switch (this.axis)
+        {
+            case X -> CompiledLayerRange.AXIS_X;
+            case Y -> CompiledLayerRange.AXIS_Y;
+            case Z -> CompiledLayerRange.AXIS_Z;
+        };
+
+        return CompiledLayerRange.of(axis, this.getLayerMin(), this.getLayerMax());
+    }
+
+    /**
+     * Discards the compiled range, this must be called whenever any of the range values change
+     */
+    protected void onRangeChanged()
+    {
+        this.compiled = null;
+    }
+
     public int getCurrentLayerValue(boolean isSecondValue)
     {
         switch (this.layerMode)
@@ -135,6 +178,7 @@ public class LayerRange
     public void setLayerMode(LayerMode mode, boolean printMessage)
     {
         this.layerMode = mode;
+        this.onRangeChanged();
 
         this.refresher.updateAll();
 
@@ -148,6 +192,7 @@ public class LayerRange
     public void setAxis(Direction.Axis axis)
     {
         this.axis = axis;
+        this.onRangeChanged();
 
         this.refresher.updateAll();
         String val = GuiBase.TXT_GREEN + axis.getName();
@@ -162,6 +207,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerSingle = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, old);
             this.updateLayersBetween(layer, layer);
         }
@@ -175,6 +221,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerAbove = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, layer);
         }
     }
@@ -187,6 +234,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerBelow = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, layer);
         }
     }
@@ -214,6 +262,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerRangeMin = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, layer);
         }
 
@@ -245,6 +294,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerRangeMax = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, layer);
         }
 
@@ -484,16 +534,7 @@ public class LayerRange
 
     public boolean isPositionWithinRange(int x, int y, int z)
     {
-        switch (this.layerMode)
-        {
-            case ALL:           return true;
-            case SINGLE_LAYER:  return this.isPositionWithinSingleLayerRange(x, y, z);
-            case ALL_ABOVE:     return this.isPositionWithinAboveRange(x, y, z);
-            case ALL_BELOW:     return this.isPositionWithinBelowRange(x, y, z);
-            case LAYER_RANGE:   return this.isPositionWithinLayerRangeRange(x, y, z);
-        }
-
-        return false;
+        return this.getCompiled().isPositionWithinRange(x, y, z);
     }
 
     protected boolean isPositionWithinSingleLayerRange(int x, int y, int z)
@@ -558,29 +599,7 @@ public class LayerRange
 
     public boolean intersects(SubChunkPos pos)
     {
-        switch (this.axis)
-        {
-            case X:
-            {
-                final int xMin = (pos.getX() << 4);
-                final int xMax = (pos.getX() << 4) + 15;
-                return (xMax < this.getLayerMin() || xMin > this.getLayerMax()) == false;
-            }
-            case Y:
-            {
-                final int yMin = (pos.getY() << 4);
-                final int yMax = (pos.getY() << 4) + 15;
-                return (yMax < this.getLayerMin() || yMin > this.getLayerMax()) == false;
-            }
-            case Z:
-            {
-                final int zMin = (pos.getZ() << 4);
-                final int zMax = (pos.getZ() << 4) + 15;
-                return (zMax < this.getLayerMin() || zMin > this.getLayerMax()) == false;
-            }
-            default:
-                return false;
-        }
+        return this.getCompiled().intersectsSection(pos.getX(), pos.getY(), pos.getZ());
     }
 
     public boolean intersects(IntBoundingBox box)
@@ -595,14 +614,36 @@ public class LayerRange
 
     public boolean intersectsBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
     {
-        switch (this.axis)
-        {
-            case X: return (maxX < this.getLayerMin() || minX > this.getLayerMax()) == false;
-            case Y: return (maxY < this.getLayerMin() || minY > this.getLayerMax()) == false;
-            case Z: return (maxZ < this.getLayerMin() || minZ > this.getLayerMax()) == false;
-        }
+        return this.getCompiled().intersectsBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
 
-        return false;
+    /**
+     * @return the part of the given box that is within this range, or null if they don't intersect
+     */
+    @Nullable
+    public IntBoundingBox clipBox(IntBoundingBox box)
+    {
+        return this.getCompiled().clipBox(box);
+    }
+
+    /**
+     * @return the part of the 16x16x16 chunk section at the given position that is within this range,
+     *         or null if they don't intersect
+     */
+    @Nullable
+    public IntBoundingBox clipSection(SubChunkPos pos)
+    {
+        return this.getCompiled().clipSection(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Visits the parts of the given box that are within this range, split along the chunk section borders,
+     * without testing each position separately. See {@link CompiledLayerRange#forEachClippedSection}.
+     * @return false if the visitor stopped the iteration, true otherwise
+     */
+    public boolean forEachClippedSection(IntBoundingBox box, CompiledLayerRange.SectionVisitor visitor)
+    {
+        return this.getCompiled().forEachClippedSection(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, visitor);
     }
 
     public int getClampedValue(int value, Direction.Axis axis)
@@ -764,5 +805,6 @@ public class LayerRange
         this.layerRangeMax = JsonUtils.getInteger(obj, "layer_range_max");
         this.hotkeyRangeMin = JsonUtils.getBoolean(obj, "hotkey_range_min");
         this.hotkeyRangeMax = JsonUtils.getBoolean(obj, "hotkey_range_max");
+        this.onRangeChanged();
     }
 }
@@ -0,0 +1,217 @@
+package fi.dy.masa.malilib.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
+import org.jetbrains.annotations.ApiStatus;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.util.math.BlockPos;
+
+import fi.dy.masa.malilib.MaLiLib;
+
+/**
+ * Decodes inventories from block entity and entity NBT data on a background thread,
+ * so that the overlays don't need to decode the item lists on the render thread
+ * every time the target or its data changes.
+ * <br>
+ * The decoded results are cached per block position or entity, together with a revision number
+ * supplied by the caller (for example a counter that is incremented whenever new NBT data is received,
+ * or simply the hash code of the NBT data). A new decode is only started when the revision changes,
+ * and the previous result is returned until the new one is ready.
+ * <br>
+ * Only call the methods of this class from the render/client thread.
+ */
+public class NbtInventoryDecoder
+{
+    private static final NbtInventoryDecoder INSTANCE = new NbtInventoryDecoder();
+    private static final int MAX_ENTRIES = 256;
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor((r) -> {
+        Thread thread = new Thread(r, "MaLiLib NBT Decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Key, Entry> cache = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest)
+        {
+            return this.size() > MAX_ENTRIES;
+        }
+    };
+
+    public static NbtInventoryDecoder getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the decoded inventory of the block entity at the given position,
+     * and starts decoding the given NBT data if the revision has changed.
+     * @param slotCount the number of slots to decode, or -1 to use the size of the item list
+     * @return the latest finished decode result, which may be from an older revision, or null if there is none yet
+     */
+    @Nullable
+    public DecodedInventory getBlockInventory(BlockPos pos, int revision, NbtCompound nbt, int slotCount,
+                                              RegistryWrapper.WrapperLookup registry)
+    {
+        return this.getOrDecode(new Key(false, pos.asLong()), revision, nbt, registry,
+                                (n, r) -> InventoryUtils.getNbtInventory(n, slotCount, r));
+    }
+
+    /**
+     * Returns the decoded inventory of the given entity,
+     * and starts decoding the given NBT data if the revision has changed.
+     * @return the latest finished decode result, which may be from an older revision, or null if there is none yet
+     */
+    @Nullable
+    public DecodedInventory getEntityInventory(Entity entity, int revision, NbtCompound nbt, RegistryWrapper.WrapperLookup registry)
+    {
+        return this.getEntityInventory(entity, revision, nbt, registry, (n, r) -> InventoryUtils.getNbtInventory(n, -1, r));
+    }
+
+    /**
+     * Returns the decoded inventory of the given entity,
+     * and starts decoding the given NBT data if the revision has changed.
+     * @param decoder the decoding function, for example
+     *                {@link InventoryUtils#getNbtInventoryHorseFix(NbtCompound, int, RegistryWrapper.WrapperLookup)}
+     *                for horses. This gets called on the decoder thread!
+     * @return the latest finished decode result, which may be from an older revision, or null if there is none yet
+     */
+    @Nullable
+    public DecodedInventory getEntityInventory(Entity entity, int revision, NbtCompound nbt,
+                                               RegistryWrapper.WrapperLookup registry, Decoder decoder)
+    {
+        return this.getOrDecode(new Key(true, entity.getId()), revision, nbt, registry, decoder);
+    }
+
+    /**
+     * Forgets the cached result of the block entity at the given position
+     */
+    public void invalidateBlock(BlockPos pos)
+    {
+        this.cache.remove(new Key(false, pos.asLong()));
+    }
+
+    /**
+     * Forgets the cached result of the given entity
+     */
+    public void invalidateEntity(Entity entity)
+    {
+        this.cache.remove(new Key(true, entity.getId()));
+    }
+
+    @ApiStatus.Internal
+    public void clear()
+    {
+        // Any decodes still in progress only update their own, now detached, entries
+        this.cache.clear();
+    }
+
+    @Nullable
+    private DecodedInventory getOrDecode(Key key, int revision, NbtCompound nbt,
+                                         RegistryWrapper.WrapperLookup registry, Decoder decoder)
+    {
+        Entry entry = this.cache.get(key);
+
+        if (entry == null)
+        {
+            entry = new Entry();
+            this.cache.put(key, entry);
+        }
+
+        if (entry.requestedRevision != revision || entry.hasRequest == false)
+        {
+            entry.requestedRevision = revision;
+            entry.hasRequest = true;
+
+            // The NBT data may be modified on this thread while the decode is running
+            final Entry target = entry;
+            final NbtCompound nbtCopy = nbt.copy();
+
+            EXECUTOR.execute(() -> target.decode(revision, nbtCopy, registry, decoder));
+        }
+
+        return entry.result;
+    }
+
+    @FunctionalInterface
+    public interface Decoder
+    {
+        @Nullable
+        Inventory decode(NbtCompound nbt, RegistryWrapper.WrapperLookup registry);
+    }
+
+    private record Key(boolean entity, long id)
+    {
+    }
+
+    private static class Entry
+    {
+        @Nullable private volatile DecodedInventory result;
+        private int requestedRevision;
+        private boolean hasRequest;
+
+        private void decode(int revision, NbtCompound nbt, RegistryWrapper.WrapperLookup registry, Decoder decoder)
+        {
+            try
+            {
+                Inventory inv = decoder.decode(nbt, registry);
+                this.result = inv != null ? new DecodedInventory(revision, inv) : null;
+            }
+            catch (Exception e)
+            {
+                MaLiLib.logger.warn("NbtInventoryDecoder: Failed to decode the inventory: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * An inventory decoded from NBT data. The inventory must not be modified.
+     */
+    public static class DecodedInventory
+    {
+        private final int revision;
+        private final Inventory inventory;
+        private final List<ItemStack> items;
+
+        private DecodedInventory(int revision, Inventory inventory)
+        {
+            List<ItemStack> items = new ArrayList<>(inventory.size());
+
+            for (int slot = 0; slot < inventory.size(); ++slot)
+            {
+                items.add(inventory.getStack(slot));
+            }
+
+            this.revision = revision;
+            this.inventory = inventory;
+            this.items = Collections.unmodifiableList(items);
+        }
+
+        public int getRevision()
+        {
+            return this.revision;
+        }
+
+        public Inventory getInventory()
+        {
+            return this.inventory;
+        }
+
+        public List<ItemStack> getItems()
+        {
+            return this.items;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package fi.dy.masa.malilib.util.game;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import net.minecraft.util.hit.HitResult;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+import fi.dy.masa.malilib.util.LayerRange;
+import fi.dy.masa.malilib.util.MathUtils;
+import fi.dy.masa.malilib.util.game.RayTraceUtils.RayTraceFluidHandling;
+import fi.dy.masa.malilib.util.position.Vec3d;
+
+/**
+ * Ray traces a batch of rays against the blocks of a world in parallel.
+ * The chunk sections along the rays are first copied into a {@link WorldSectionSnapshot}
+ * on the calling thread, and the actual traces then run on the common ForkJoin pool
+ * against that snapshot. The results are always in the same order as the rays.
+ * <br>
+ * The traces behave the same way as {@link RayTraceUtils#rayTraceBlocks(World, Vec3d, Vec3d, RayTraceFluidHandling, boolean, boolean, LayerRange, int)}.
+ */
+public class RayTraceBatch
+{
+    /** Smaller batches than this are not worth splitting across threads */
+    private static final int PARALLEL_THRESHOLD = 16;
+
+    public record Ray(Vec3d start, Vec3d end)
+    {
+    }
+
+    /**
+     * Ray traces all the given rays, and waits for the results.
+     * This must be called on the thread that owns the world, usually the client thread.
+     * @return the results in the same order as the rays. Rays that didn't hit anything have a null result,
+     *         unless returnLastUncollidableBlock is true.
+     */
+    public static List<HitResult> rayTraceBlocks(World world, List<Ray> rays, RayTraceFluidHandling fluidMode,
+                                                 boolean ignoreNonCollidable, boolean returnLastUncollidableBlock,
+                                                 @Nullable LayerRange layerRange, int maxSteps)
+    {
+        WorldSectionSnapshot snapshot = createSnapshot(world, rays);
+        return rayTraceBlocks(snapshot, rays, fluidMode, ignoreNonCollidable, returnLastUncollidableBlock, layerRange, maxSteps);
+    }
+
+    /**
+     * Copies the relevant parts of the world right away, and then ray traces all the given rays
+     * in the background, without blocking the calling thread.
+     * This must be called on the thread that owns the world, usually the client thread.
+     * The layer range must not be modified before the returned future completes.
+     * @return a future with the results in the same order as the rays
+     */
+    public static CompletableFuture<List<HitResult>> rayTraceBlocksAsync(World world, List<Ray> rays, RayTraceFluidHandling fluidMode,
+                                                                         boolean ignoreNonCollidable, boolean returnLastUncollidableBlock,
+                                                                         @Nullable LayerRange layerRange, int maxSteps)
+    {
+        final List<Ray> raysCopy = List.copyOf(rays);
+        final WorldSectionSnapshot snapshot = createSnapshot(world, raysCopy);
+
+        return CompletableFuture.supplyAsync(() -> rayTraceBlocks(snapshot, raysCopy, fluidMode, ignoreNonCollidable,
+                                                                  returnLastUncollidableBlock, layerRange, maxSteps),
+                                             ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Ray traces all the given rays against an existing snapshot. This can be called from any thread.
+     * @return the results in the same order as the rays
+     */
+    public static List<HitResult> rayTraceBlocks(WorldSectionSnapshot snapshot, List<Ray> rays, RayTraceFluidHandling fluidMode,
+                                                 boolean ignoreNonCollidable, boolean returnLastUncollidableBlock,
+                                                 @Nullable LayerRange layerRange, int maxSteps)
+    {
+        final int count = rays.size();
+        final HitResult[] results = new HitResult[count];
+        IntStream indices = IntStream.range(0, count);
+
+        if (count >= PARALLEL_THRESHOLD)
+        {
+            indices = indices.parallel();
+        }
+
+        // Each ray writes only to its own index, so the order doesn't depend on the scheduling
+        indices.forEach((i) -> {
+            Ray ray = rays.get(i);
+            results[i] = rayTraceBlocks(snapshot, ray.start(), ray.end(), fluidMode, ignoreNonCollidable,
+                                        returnLastUncollidableBlock, layerRange, maxSteps);
+        });
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Copies all the chunk sections that the given rays can pass through.
+     * This must be called on the thread that owns the world, usually the client thread.
+     */
+    public static WorldSectionSnapshot createSnapshot(World world, List<Ray> rays)
+    {
+        LongSet sections = new LongOpenHashSet();
+
+        for (Ray ray : rays)
+        {
+            addSectionsAlongRay(ray.start(), ray.end(), sections);
+        }
+
+        return WorldSectionSnapshot.create(world, sections);
+    }
+
+    /**
+     * Adds the positions of all the chunk sections that the ray trace between the given points
+     * can visit to the given set. The sections are slightly over-estimated near the section borders.
+     */
+    public static void addSectionsAlongRay(Vec3d start, Vec3d end, LongSet sectionsOut)
+    {
+        if (Double.isNaN(start.x) || Double.isNaN(start.y) || Double.isNaN(start.z) ||
+            Double.isNaN(end.x) || Double.isNaN(end.y) || Double.isNaN(end.z))
+        {
+            return;
+        }
+
+        double dx = end.x - start.x;
+        double dy = end.y - start.y;
+        double dz = end.z - start.z;
+        // Sample at most one block apart, so that every block the trace visits is within 1.5 blocks of a sample
+        int steps = (int) Math.ceil(Math.sqrt(dx * dx + dy * dy + dz * dz));
+
+        for (int i = 0; i <= steps; ++i)
+        {
+            double f = steps > 0 ? (double) i / (double) steps : 0.0;
+            double x = start.x + dx * f;
+            double y = start.y + dy * f;
+            double z = start.z + dz * f;
+            int minX = MathUtils.floor(x - 1.5) >> 4;
+            int minY = MathUtils.floor(y - 1.5) >> 4;
+            int minZ = MathUtils.floor(z - 1.5) >> 4;
+            int maxX = MathUtils.floor(x + 1.5) >> 4;
+            int maxY = MathUtils.floor(y + 1.5) >> 4;
+            int maxZ = MathUtils.floor(z + 1.5) >> 4;
+
+            for (int sy = minY; sy <= maxY; ++sy)
+            {
+                for (int sz = minZ; sz <= maxZ; ++sz)
+                {
+                    for (int sx = minX; sx <= maxX; ++sx)
+                    {
+                        sectionsOut.add(ChunkSectionPos.asLong(sx, sy, sz));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ray traces one ray against the given snapshot. This can be called from any thread.
+     * @return the ray trace result, or null if the trace didn't hit any blocks
+     */
+    @Nullable
+    public static HitResult rayTraceBlocks(WorldSectionSnapshot snapshot, Vec3d start, Vec3d end,
+                                           RayTraceFluidHandling fluidMode, boolean ignoreNonCollidable,
+                                           boolean returnLastUncollidableBlock, @Nullable LayerRange layerRange, int maxSteps)
+    {
+        return RayTraceUtils.rayTraceBlocks(snapshot, start, end, (data) -> data.checkRayCollision(snapshot, ignoreNonCollidable), true,
+                                            fluidMode, RayTraceUtils.BLOCK_FILTER_ANY, returnLastUncollidableBlock, layerRange, maxSteps);
+    }
+}
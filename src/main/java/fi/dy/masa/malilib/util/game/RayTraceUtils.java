@@ -2,7 +2,9 @@ package fi.dy.masa.malilib.util.game;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import org.jetbrains.annotations.ApiStatus;
 
 import net.minecraft.block.BlockState;
@@ -14,7 +16,12 @@ import net.minecraft.util.hit.EntityHitResult;
 import net.minecraft.util.hit.HitResult;
 import net.minecraft.util.math.Box;
 import net.minecraft.util.shape.VoxelShapes;
+import net.minecraft.world.BlockView;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.PalettedContainer;
 
 import fi.dy.masa.malilib.util.BlockUtils;
 import fi.dy.masa.malilib.util.LayerRange;
@@ -62,28 +69,8 @@ public class RayTraceUtils
 
             double closest = result != null && result.getType() == HitResult.Type.BLOCK ?
                              eyesPos.squareDistanceTo(result.getPos()) : Double.MAX_VALUE;
-            HitResult entityTrace = null;
-            Entity targetEntity = null;
-
-            for (Entity entityTmp : list)
-            {
-                bb = entityTmp.getBoundingBox();
-                //HitResult traceTmp = bb.calculateIntercept(eyesPos, lookEndPos);
-                Optional<net.minecraft.util.math.Vec3d> opt = bb.raycast(eyesPos.toVanilla(), lookEndPos.toVanilla());
-
-                if (opt.isPresent())
-                {
-                    HitResult traceTmp = new EntityHitResult(entityTmp, opt.get());
-                    double distance = eyesPos.squareDistanceTo(traceTmp.getPos());
-
-                    if (distance < closest)
-                    {
-                        targetEntity = entityTmp;
-                        entityTrace = traceTmp;
-                        closest = distance;
-                    }
-                }
-            }
+            EntityHitResult entityTrace = getClosestEntityHit(list, eyesPos, lookEndPos, closest);
+            Entity targetEntity = entityTrace != null ? entityTrace.getEntity() : null;
 
             if (targetEntity != null)
             {
@@ -101,7 +88,73 @@ public class RayTraceUtils
     }
 
     /**
-     * Ray trace to blocks along the given vector
+     * Finds the closest entity hit along the given ray, that is closer than the given squared distance.
+     * The candidates are first sorted by the distance to the closest point of their bounding box,
+     * so that the more expensive ray intersection tests can stop as soon as no remaining
+     * candidate can be closer than the closest hit found so far.
+     * @param closestSq the squared distance of the closest hit so far, for example a block hit
+     * @return the closest entity hit, or null if no entity was hit closer than closestSq
+     */
+    @Nullable
+    public static EntityHitResult getClosestEntityHit(List<Entity> candidates, Vec3d start, Vec3d end, double closestSq)
+    {
+        final int count = candidates.size();
+
+        if (count == 0)
+        {
+            return null;
+        }
+
+        final double[] minDistances = new double[count];
+        final int[] order = new int[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            Box bb = candidates.get(i).getBoundingBox();
+            double dx = Math.max(Math.max(bb.minX - start.x, start.x - bb.maxX), 0.0);
+            double dy = Math.max(Math.max(bb.minY - start.y, start.y - bb.maxY), 0.0);
+            double dz = Math.max(Math.max(bb.minZ - start.z, start.z - bb.maxZ), 0.0);
+            minDistances[i] = dx * dx + dy * dy + dz * dz;
+            order[i] = i;
+        }
+
+        IntArrays.quickSort(order, (i1, i2) -> Double.compare(minDistances[i1], minDistances[i2]));
+
+        net.minecraft.util.math.Vec3d startVanilla = start.toVanilla();
+        net.minecraft.util.math.Vec3d endVanilla = end.toVanilla();
+        EntityHitResult closestHit = null;
+
+        for (int i = 0; i < count; ++i)
+        {
+            int index = order[i];
+
+            // None of the remaining candidates can be closer than the current closest hit
+            if (minDistances[index] >= closestSq)
+            {
+                break;
+            }
+
+            Entity entity = candidates.get(index);
+            Optional<net.minecraft.util.math.Vec3d> opt = entity.getBoundingBox().raycast(startVanilla, endVanilla);
+
+            if (opt.isPresent())
+            {
+                double distance = start.squareDistanceTo(opt.get());
+
+                if (distance < closestSq)
+                {
+                    closestHit = new EntityHitResult(entity, opt.get());
+                    closestSq = distance;
+                }
+            }
+        }
+
+        return closestHit;
+    }
+
+    /**
+     * Ray trace to blocks along the given vector.
+     * This skips over any empty chunk sections along the ray in one step.
      * @param world
      * @param start The start position of the trace
      * @param end The end position of the trace
@@ -120,12 +173,14 @@ public class RayTraceUtils
                                            boolean ignoreNonCollidable, boolean returnLastUncollidableBlock,
                                            @Nullable LayerRange layerRange, int maxSteps)
     {
-        return rayTraceBlocks(world, start, end, RayTraceCalculationData::checkRayCollision, fluidMode, BLOCK_FILTER_ANY,
+        return rayTraceBlocks(world, start, end, COLLISION_HANDLER, fluidMode, BLOCK_FILTER_ANY,
                               ignoreNonCollidable, returnLastUncollidableBlock, layerRange, maxSteps);
     }
 
     /**
-     * Ray trace to blocks along the given vector
+     * Ray trace to blocks along the given vector.
+     * If the handler returns true from {@link IRayPositionHandler#canSkipEmptySections()},
+     * then any empty chunk sections along the ray are skipped over in one step.
      * @param world
      * @param start The start position of the trace
      * @param end The end position of the trace
@@ -142,6 +197,21 @@ public class RayTraceUtils
                                            RayTraceFluidHandling fluidMode, BlockStatePredicate blockFilter,
                                            boolean ignoreNonCollidable, boolean returnLastUncollidableBlock,
                                            @Nullable LayerRange layerRange, int maxSteps)
+    {
+        return rayTraceBlocks(world, start, end, (data) -> handler.handleRayTracePosition(data, world, ignoreNonCollidable),
+                              handler.canSkipEmptySections(), fluidMode, blockFilter, returnLastUncollidableBlock, layerRange, maxSteps);
+    }
+
+    /**
+     * The ray trace loop shared by the world based traces and the snapshot based traces in {@link RayTraceBatch}.
+     * @param positionHandler checks the current position, and returns true if the trace should stop
+     *                        and the current trace result should be returned
+     * @param skipEmptySections if true, then empty chunk sections are skipped over without calling the position handler
+     */
+    @Nullable
+    static HitResult rayTraceBlocks(BlockView world, Vec3d start, Vec3d end, Predicate<RayTraceCalculationData> positionHandler,
+                                    boolean skipEmptySections, RayTraceFluidHandling fluidMode, BlockStatePredicate blockFilter,
+                                    boolean returnLastUncollidableBlock, @Nullable LayerRange layerRange, int maxSteps)
     {
         if (Double.isNaN(start.x) || Double.isNaN(start.y) || Double.isNaN(start.z) ||
                 Double.isNaN(end.x) || Double.isNaN(end.y) || Double.isNaN(end.z))
@@ -153,7 +223,17 @@ public class RayTraceUtils
 
         while (--maxSteps >= 0)
         {
-            if (handler.handleRayTracePosition(data, world, ignoreNonCollidable))
+            if (skipEmptySections && data.isInEmptySection(world))
+            {
+                if (rayTraceSkipSection(data))
+                {
+                    break;
+                }
+
+                continue;
+            }
+
+            if (positionHandler.test(data))
             {
                 //System.out.printf("checkCollision() - steps: %d, trace: %s\n", maxSteps, data.trace);
                 //return HitResult.of(data.trace);
@@ -170,8 +250,10 @@ public class RayTraceUtils
         if (returnLastUncollidableBlock)
         {
             Vec3d pos = new Vec3d(data.currentX, data.currentY, data.currentZ);
+            // The facing is not set if the trace never crossed a block boundary
+            Direction facing = data.facing != null ? data.facing : getEntryFacing(end.x - start.x, end.y - start.y, end.z - start.z);
             //return new HitResult(HitResult.Type.MISS, data.mutablePos.toImmutable(), data.facing, pos, null);
-            return BlockHitResult.createMissed(pos.toVanilla(), data.facing.getVanillaDirection(), data.mutablePos.toImmutable());
+            return BlockHitResult.createMissed(pos.toVanilla(), facing.getVanillaDirection(), data.mutablePos.toImmutable());
         }
 
         return null;
@@ -181,7 +263,7 @@ public class RayTraceUtils
     {
         if (data.isPositionWithinRange())
         {
-            BlockState state = world.getBlockState(data.mutablePos);
+            BlockState state = data.getBlockState(world);
 
             if (data.isValidBlock(state) &&
                 ((ignoreNonCollidable == false && state.getBlock().getDefaultState() != BLOCK_STATE_AIR) ||
@@ -334,6 +416,129 @@ public class RayTraceUtils
         return false;
     }
 
+    /**
+     * Advances the trace to the first block outside of the current chunk section,
+     * or to the end block, if the end is within the current section.
+     * @return true if the end of the trace was reached
+     */
+    public static boolean rayTraceSkipSection(RayTraceCalculationData data)
+    {
+        if (Double.isNaN(data.currentX) || Double.isNaN(data.currentY) || Double.isNaN(data.currentZ))
+        {
+            data.trace = null;
+            return true;
+        }
+
+        if (data.blockX == data.endBlockX && data.blockY == data.endBlockY && data.blockZ == data.endBlockZ)
+        {
+            return true;
+        }
+
+        final int sectionX = data.blockX >> 4;
+        final int sectionY = data.blockY >> 4;
+        final int sectionZ = data.blockZ >> 4;
+        final double minX = sectionX << 4;
+        final double minY = sectionY << 4;
+        final double minZ = sectionZ << 4;
+        final double distToEndX = data.end.x - data.currentX;
+        final double distToEndY = data.end.y - data.currentY;
+        final double distToEndZ = data.end.z - data.currentZ;
+        double relStep = Double.MAX_VALUE;
+        Direction facing = null;
+        double boundary = 0.0;
+
+        if (distToEndX != 0.0)
+        {
+            double nextX = distToEndX > 0.0 ? minX + 16.0 : minX;
+            double relStepX = (nextX - data.currentX) / distToEndX;
+
+            if (relStepX < relStep)
+            {
+                relStep = relStepX;
+                facing = distToEndX > 0.0 ? Direction.WEST : Direction.EAST;
+                boundary = nextX;
+            }
+        }
+
+        if (distToEndY != 0.0)
+        {
+            double nextY = distToEndY > 0.0 ? minY + 16.0 : minY;
+            double relStepY = (nextY - data.currentY) / distToEndY;
+
+            if (relStepY < relStep)
+            {
+                relStep = relStepY;
+                facing = distToEndY > 0.0 ? Direction.DOWN : Direction.UP;
+                boundary = nextY;
+            }
+        }
+
+        if (distToEndZ != 0.0)
+        {
+            double nextZ = distToEndZ > 0.0 ? minZ + 16.0 : minZ;
+            double relStepZ = (nextZ - data.currentZ) / distToEndZ;
+
+            if (relStepZ < relStep)
+            {
+                relStep = relStepZ;
+                facing = distToEndZ > 0.0 ? Direction.NORTH : Direction.SOUTH;
+                boundary = nextZ;
+            }
+        }
+
+        // The rest of the ray is inside this empty section
+        if (facing == null || relStep > 1.0)
+        {
+            data.facing = getEntryFacing(distToEndX, distToEndY, distToEndZ);
+            data.currentX = data.end.x;
+            data.currentY = data.end.y;
+            data.currentZ = data.end.z;
+            data.setBlockPos(data.endBlockX, data.endBlockY, data.endBlockZ);
+            return true;
+        }
+
+        data.facing = facing;
+        data.currentX = facing.getAxis() == Direction.Axis.X ? boundary : data.currentX + distToEndX * relStep;
+        data.currentY = facing.getAxis() == Direction.Axis.Y ? boundary : data.currentY + distToEndY * relStep;
+        data.currentZ = facing.getAxis() == Direction.Axis.Z ? boundary : data.currentZ + distToEndZ * relStep;
+
+        int x = MathUtils.floor(data.currentX) - (facing == Direction.EAST  ? 1 : 0);
+        int y = MathUtils.floor(data.currentY) - (facing == Direction.UP    ? 1 : 0);
+        int z = MathUtils.floor(data.currentZ) - (facing == Direction.SOUTH ? 1 : 0);
+
+        // Rounding at the section edges didn't get us out of the section, fall back to a regular step
+        if ((x >> 4) == sectionX && (y >> 4) == sectionY && (z >> 4) == sectionZ)
+        {
+            return rayTraceAdvance(data);
+        }
+
+        data.setBlockPos(x, y, z);
+
+        return false;
+    }
+
+    /**
+     * @return the side of a block that a ray moving by the given amounts would enter through,
+     *         based on the dominant axis of the movement
+     */
+    private static Direction getEntryFacing(double dx, double dy, double dz)
+    {
+        double absX = Math.abs(dx);
+        double absY = Math.abs(dy);
+        double absZ = Math.abs(dz);
+
+        if (absX >= absY && absX >= absZ)
+        {
+            return dx > 0.0 ? Direction.WEST : Direction.EAST;
+        }
+        else if (absY >= absZ)
+        {
+            return dy > 0.0 ? Direction.DOWN : Direction.UP;
+        }
+
+        return dz > 0.0 ? Direction.NORTH : Direction.SOUTH;
+    }
+
     public static class RayTraceCalculationData
     {
         @Nullable
@@ -355,6 +560,11 @@ public class RayTraceUtils
         public Direction facing;
         @Nullable
         public HitResult trace;
+        @Nullable protected Chunk cachedChunk;
+        @Nullable protected PalettedContainer<BlockState> cachedSection;
+        protected int cachedChunkX = Integer.MIN_VALUE;
+        protected int cachedChunkZ = Integer.MIN_VALUE;
+        protected int cachedSectionY = Integer.MIN_VALUE;
 
         public RayTraceCalculationData(Vec3d start, Vec3d end, RayTraceFluidHandling fluidMode,
                                        BlockStatePredicate blockFilter, @Nullable LayerRange range)
@@ -386,19 +596,104 @@ public class RayTraceUtils
             return this.blockFilter.test(state);
         }
 
+        /**
+         * Returns the block state at the current position.
+         * The current chunk and chunk section are cached, so that consecutive
+         * positions within the same section don't need the chunk map lookup.
+         * The world can be either a {@link World} or a {@link WorldSectionSnapshot}.
+         */
+        public BlockState getBlockState(BlockView world)
+        {
+            if (world.isOutOfHeightLimit(this.blockY))
+            {
+                return Blocks.VOID_AIR.getDefaultState();
+            }
+
+            if ((world instanceof World || world instanceof WorldSectionSnapshot) == false)
+            {
+                return world.getBlockState(this.mutablePos);
+            }
+
+            PalettedContainer<BlockState> states = this.getCurrentSection(world);
+
+            if (states == null)
+            {
+                return BLOCK_STATE_AIR;
+            }
+
+            return states.get(this.blockX & 0xF, this.blockY & 0xF, this.blockZ & 0xF);
+        }
+
+        /**
+         * @return true if the current position is in an unloaded chunk, outside the world height,
+         *         or in a chunk section that only contains air
+         */
+        public boolean isInEmptySection(BlockView world)
+        {
+            if (world.isOutOfHeightLimit(this.blockY))
+            {
+                return true;
+            }
+
+            if ((world instanceof World || world instanceof WorldSectionSnapshot) == false)
+            {
+                return false;
+            }
+
+            return this.getCurrentSection(world) == null;
+        }
+
+        /**
+         * @return the block states of the current chunk section, or null if the section is empty or not loaded
+         */
+        @Nullable
+        protected PalettedContainer<BlockState> getCurrentSection(BlockView world)
+        {
+            final int chunkX = this.blockX >> 4;
+            final int chunkZ = this.blockZ >> 4;
+            final int sectionY = this.blockY >> 4;
+
+            if (chunkX != this.cachedChunkX || chunkZ != this.cachedChunkZ)
+            {
+                this.cachedChunk = world instanceof World realWorld ? realWorld.getChunk(chunkX, chunkZ, ChunkStatus.FULL, false) : null;
+                this.cachedChunkX = chunkX;
+                this.cachedChunkZ = chunkZ;
+                this.cachedSectionY = Integer.MIN_VALUE;
+            }
+
+            if (sectionY != this.cachedSectionY)
+            {
+                if (world instanceof WorldSectionSnapshot snapshot)
+                {
+                    this.cachedSection = snapshot.getBlockStates(chunkX, sectionY, chunkZ);
+                }
+                else
+                {
+                    Chunk chunk = this.cachedChunk;
+                    int index = chunk != null ? chunk.sectionCoordToIndex(sectionY) : -1;
+                    ChunkSection section = index >= 0 && index < chunk.getSectionArray().length ? chunk.getSection(index) : null;
+                    this.cachedSection = section != null && section.isEmpty() == false ? section.getBlockStateContainer() : null;
+                }
+
+                this.cachedSectionY = sectionY;
+            }
+
+            return this.cachedSection;
+        }
+
         public boolean isPositionWithinRange()
         {
             return this.range == null || this.range.isPositionWithinRange(this.blockX, this.blockY, this.blockZ);
         }
 
-        public boolean checkRayCollision(World world, boolean ignoreNonCollidable)
+        public boolean checkRayCollision(BlockView world, boolean ignoreNonCollidable)
         {
             if (this.isPositionWithinRange() == false)
             {
                 return false;
             }
 
-            BlockState state = world.getBlockState(this.mutablePos);
+            BlockState state = this.getBlockState(world);
 
             if (state == BLOCK_STATE_AIR ||
                 this.isValidBlock(state) == false ||
@@ -457,8 +752,35 @@ public class RayTraceUtils
          * @return true if the ray should stop here and the current trace result from the RayTraceCalcsData should be returned
          */
         boolean handleRayTracePosition(RayTraceCalculationData data, World world, boolean ignoreNonCollidable);
+
+        /**
+         * @return true if this handler can never stop the trace at an air block of the given world,
+         *         so that chunk sections with only air in them can be skipped over without calling the handler
+         */
+        default boolean canSkipEmptySections()
+        {
+            return false;
+        }
     }
 
+    /**
+     * The default block collision handler, which skips over the empty chunk sections
+     */
+    public static final IRayPositionHandler COLLISION_HANDLER = new IRayPositionHandler()
+    {
+        @Override
+        public boolean handleRayTracePosition(RayTraceCalculationData data, World world, boolean ignoreNonCollidable)
+        {
+            return data.checkRayCollision(world, ignoreNonCollidable);
+        }
+
+        @Override
+        public boolean canSkipEmptySections()
+        {
+            return true;
+        }
+    };
+
     public interface BlockStatePredicate
     {
         boolean test(BlockState state);
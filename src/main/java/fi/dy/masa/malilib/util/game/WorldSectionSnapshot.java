@@ -0,0 +1,133 @@
+package fi.dy.masa.malilib.util.game;
+
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.BlockView;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.PalettedContainer;
+
+/**
+ * An immutable copy of the block states of a set of chunk sections of a world,
+ * which can be safely read from other threads while the world keeps changing.
+ * Any positions in sections that were not included in the snapshot,
+ * or that were empty or not loaded at the time, read as air.
+ * Block entities are not included.
+ */
+public class WorldSectionSnapshot implements BlockView
+{
+    private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections;
+    private final int bottomY;
+    private final int height;
+
+    private WorldSectionSnapshot(Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections, int bottomY, int height)
+    {
+        this.sections = sections;
+        this.bottomY = bottomY;
+        this.height = height;
+    }
+
+    /**
+     * Copies the given chunk sections from the world.
+     * This must be called on the thread that owns the world, usually the client thread.
+     * @param sectionPositions the positions of the sections to copy, as {@link ChunkSectionPos#asLong(int, int, int)} values
+     */
+    public static WorldSectionSnapshot create(World world, LongSet sectionPositions)
+    {
+        Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>(sectionPositions.size());
+        LongIterator iter = sectionPositions.iterator();
+
+        while (iter.hasNext())
+        {
+            long key = iter.nextLong();
+            Chunk chunk = world.getChunk(ChunkSectionPos.unpackX(key), ChunkSectionPos.unpackZ(key), ChunkStatus.FULL, false);
+
+            if (chunk == null)
+            {
+                continue;
+            }
+
+            int index = chunk.sectionCoordToIndex(ChunkSectionPos.unpackY(key));
+
+            if (index >= 0 && index < chunk.getSectionArray().length)
+            {
+                ChunkSection section = chunk.getSection(index);
+
+                if (section.isEmpty() == false)
+                {
+                    sections.put(key, section.getBlockStateContainer().copy());
+                }
+            }
+        }
+
+        return new WorldSectionSnapshot(sections, world.getBottomY(), world.getHeight());
+    }
+
+    /**
+     * @return the block states of the given chunk section, or null if the section is empty or was not copied
+     */
+    @Nullable
+    public PalettedContainer<BlockState> getBlockStates(int sectionX, int sectionY, int sectionZ)
+    {
+        return this.sections.get(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    public int getSectionCount()
+    {
+        return this.sections.size();
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos)
+    {
+        if (this.isOutOfHeightLimit(pos.getY()))
+        {
+            return Blocks.VOID_AIR.getDefaultState();
+        }
+
+        PalettedContainer<BlockState> states = this.getBlockStates(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4);
+
+        if (states == null)
+        {
+            return Blocks.AIR.getDefaultState();
+        }
+
+        return states.get(pos.getX() & 0xF, pos.getY() & 0xF, pos.getZ() & 0xF);
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos)
+    {
+        return this.getBlockState(pos).getFluidState();
+    }
+
+    @Nullable
+    @Override
+    public BlockEntity getBlockEntity(BlockPos pos)
+    {
+        return null;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getBottomY()
+    {
+        return this.bottomY;
+    }
+}
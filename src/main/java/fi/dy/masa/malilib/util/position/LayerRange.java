@@ -33,6 +33,7 @@ public class LayerRange
     protected boolean hotkeyRangeMin;
     protected boolean hotkeyRangeMax;
     protected boolean followPlayer;
+    @Nullable protected CompiledLayerRange compiled;
 
     public LayerRange(LayerRangeChangeListener listener)
     {
@@ -147,6 +148,48 @@ public class LayerRange
         return 0;
     }
 
+    /**
+     * Returns the compiled, immutable form of the current range, for fast per-block
+     * and per-section checks and clipping. A new instance is created after the range changes.
+     */
+    public CompiledLayerRange getCompiled()
+    {
+        CompiledLayerRange compiled = this.compiled;
+
+        if (compiled == null)
+        {
+            compiled = this.compile();
+            this.compiled = compiled;
+        }
+
+        return compiled;
+    }
+
+    protected CompiledLayerRange compile()
+    {
+        if (this.layerMode == LayerMode.ALL)
+        {
+            return CompiledLayerRange.ALL;
+        }
+
+        int axis = switch (this.axis)
+        {
+            case X -> CompiledLayerRange.AXIS_X;
+            case Y -> CompiledLayerRange.AXIS_Y;
+            case Z -> CompiledLayerRange.AXIS_Z;
+        };
+
+        return CompiledLayerRange.of(axis, this.getMinLayerBoundary(), this.getMaxLayerBoundary());
+    }
+
+    /**
+     * Discards the compiled range, this must be called whenever any of the range values change
+     */
+    protected void onRangeChanged()
+    {
+        this.compiled = null;
+    }
+
     public int getCurrentLayerValue(boolean isSecondValue)
     {
         switch (this.layerMode)
@@ -172,6 +215,7 @@ public class LayerRange
     public void setLayerMode(LayerMode mode, boolean printMessage)
     {
         this.layerMode = mode;
+        this.onRangeChanged();
         this.listener.updateAll();
 
         if (printMessage)
@@ -192,6 +236,7 @@ public class LayerRange
     public void setAxis(Direction.Axis axis)
     {
         this.axis = axis;
+        this.onRangeChanged();
         this.listener.updateAll();
         this.sendMessage("malilib.message.info.set_layer_axis_to", axis.getName());
     }
@@ -209,6 +254,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerSingle = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, old);
             this.updateLayersBetween(layer, layer);
         }
@@ -222,6 +268,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerAbove = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, layer);
         }
     }
@@ -234,6 +281,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerBelow = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, layer);
         }
     }
@@ -261,6 +309,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerRangeMin = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, layer);
         }
 
@@ -280,6 +329,7 @@ public class LayerRange
         if (layer != old)
         {
             this.layerRangeMax = layer;
+            this.onRangeChanged();
             this.updateLayersBetween(old, layer);
         }
 
@@ -346,6 +396,7 @@ public class LayerRange
 
         this.layerRangeMin = pos;
         this.layerRangeMax = pos;
+        this.onRangeChanged();
 
         this.updateLayersBetween(oldMin, oldMax);
         this.updateLayersBetween(pos, pos);
@@ -570,16 +621,7 @@ public class LayerRange
 
     public boolean isPositionWithinRange(int x, int y, int z)
     {
-        switch (this.layerMode)
-        {
-            case ALL:           return true;
-            case SINGLE_LAYER:  return this.isPositionWithinSingleLayerRange(x, y, z);
-            case ALL_ABOVE:     return this.isPositionWithinAboveRange(x, y, z);
-            case ALL_BELOW:     return this.isPositionWithinBelowRange(x, y, z);
-            case LAYER_RANGE:   return this.isPositionWithinLayerRangeRange(x, y, z);
-        }
-
-        return false;
+        return this.getCompiled().isPositionWithinRange(x, y, z);
     }
 
     protected boolean isPositionWithinSingleLayerRange(int x, int y, int z)
@@ -644,29 +686,7 @@ public class LayerRange
 
     public boolean intersects(ChunkSectionPos pos)
     {
-        switch (this.axis)
-        {
-            case X:
-            {
-                final int xMin = (pos.getX() << 4);
-                final int xMax = (pos.getX() << 4) + 15;
-                return (xMax < this.getMinLayerBoundary() || xMin > this.getMaxLayerBoundary()) == false;
-            }
-            case Y:
-            {
-                final int yMin = (pos.getY() << 4);
-                final int yMax = (pos.getY() << 4) + 15;
-                return (yMax < this.getMinLayerBoundary() || yMin > this.getMaxLayerBoundary()) == false;
-            }
-            case Z:
-            {
-                final int zMin = (pos.getZ() << 4);
-                final int zMax = (pos.getZ() << 4) + 15;
-                return (zMax < this.getMinLayerBoundary() || zMin > this.getMaxLayerBoundary()) == false;
-            }
-            default:
-                return false;
-        }
+        return this.getCompiled().intersectsSection(pos.getX(), pos.getY(), pos.getZ());
     }
 
     public boolean intersects(IntBoundingBox box)
@@ -683,13 +703,17 @@ public class LayerRange
 
     public boolean intersectsBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
     {
-        switch (this.axis)
-        {
-            case X: return (maxX < this.getMinLayerBoundary() || minX > this.getMaxLayerBoundary()) == false;
-            case Y: return (maxY < this.getMinLayerBoundary() || minY > this.getMaxLayerBoundary()) == false;
-            case Z: return (maxZ < this.getMinLayerBoundary() || minZ > this.getMaxLayerBoundary()) == false;
-            default: return false;
-        }
+        return this.getCompiled().intersectsBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Visits the parts of the given box that are within this range, split along the chunk section borders,
+     * without testing each position separately. See {@link CompiledLayerRange#forEachClippedSection}.
+     * @return false if the visitor stopped the iteration, true otherwise
+     */
+    public boolean forEachClippedSection(IntBoundingBox box, CompiledLayerRange.SectionVisitor visitor)
+    {
+        return this.getCompiled().forEachClippedSection(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, visitor);
     }
 
     public int getClampedValue(int value, Direction.Axis axis)
@@ -820,6 +844,7 @@ public class LayerRange
         this.playerFollowOffset = JsonUtils.getInteger(obj, "player_follow_offset");
         this.hotkeyRangeMin = JsonUtils.getBoolean(obj, "hotkey_range_min");
         this.hotkeyRangeMax = JsonUtils.getBoolean(obj, "hotkey_range_max");
+        this.onRangeChanged();
     }
 
     public static LayerRange createFromJson(JsonObject obj, LayerRangeChangeListener refresher)
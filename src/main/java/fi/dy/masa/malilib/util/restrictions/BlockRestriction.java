@@ -1,42 +1,23 @@
 package fi.dy.masa.malilib.util.restrictions;
 
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
 import net.minecraft.block.Block;
 import net.minecraft.registry.Registries;
-import net.minecraft.registry.entry.RegistryEntry;
-import net.minecraft.util.Identifier;
-
-import fi.dy.masa.malilib.MaLiLib;
-import fi.dy.masa.malilib.util.StringUtils;
+import net.minecraft.registry.Registry;
 
 public class BlockRestriction extends UsageRestriction<Block>
 {
     @Override
-    protected void setValuesForList(Set<Block> set, List<String> names)
+    protected Registry<Block> getRegistry()
     {
-        for (String name : names)
-        {
-            Identifier rl = null;
-
-            try
-            {
-                rl = Identifier.tryParse(name);
-            }
-            catch (Exception ignore) {}
-
-            Optional<RegistryEntry.Reference<Block>> opt = Registries.BLOCK.getEntry(rl);
+        return Registries.BLOCK;
+    }
 
-            if (opt.isPresent())
-            {
-                set.add(opt.get().value());
-            }
-            else
-            {
-                MaLiLib.logger.warn(StringUtils.translate("malilib.error.invalid_block_blacklist_entry", name));
-            }
-        }
+    @Override
+    protected void setValuesForList(Set<Block> set, List<String> names)
+    {
+        this.addValuesFromRegistry(Registries.BLOCK, set, names, "malilib.error.invalid_block_blacklist_entry");
     }
 }
@@ -1,16 +1,47 @@
 package fi.dy.masa.malilib.util.restrictions;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import javax.annotation.Nullable;
+import org.jetbrains.annotations.ApiStatus;
+
+import net.minecraft.registry.Registry;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+
+import fi.dy.masa.malilib.MaLiLib;
 import fi.dy.masa.malilib.config.IConfigOptionListEntry;
 import fi.dy.masa.malilib.util.StringUtils;
 
 public abstract class UsageRestriction<TYPE>
 {
+    private static int tagsRevision;
+
     protected ListType type = ListType.NONE;
     protected final HashSet<TYPE> blackList = new HashSet<>();
     protected final HashSet<TYPE> whiteList = new HashSet<>();
+    protected final List<String> blackListNames = new ArrayList<>();
+    protected final List<String> whiteListNames = new ArrayList<>();
+    protected final BitSet blackListIds = new BitSet();
+    protected final BitSet whiteListIds = new BitSet();
+    protected boolean logInvalidEntries = true;
+    private int builtTagsRevision;
+
+    /**
+     * Marks the lists of all the restrictions to be re-built on their next use,
+     * so that any tag entries get expanded again using the new tags.
+     * This is called when joining a world, after the tags have been received.
+     */
+    @ApiStatus.Internal
+    public static void onTagsChanged()
+    {
+        ++tagsRevision;
+    }
 
     public void setListType(ListType type)
     {
@@ -33,30 +64,175 @@ public abstract class UsageRestriction<TYPE>
         return type == ListType.WHITELIST ? this.whiteList : this.blackList;
     }
 
+    protected BitSet getIdsForType(ListType type)
+    {
+        return type == ListType.WHITELIST ? this.whiteListIds : this.blackListIds;
+    }
+
     public void setValuesForList(ListType type, List<String> names)
     {
+        List<String> storedNames = type == ListType.WHITELIST ? this.whiteListNames : this.blackListNames;
+
+        if (storedNames != names)
+        {
+            storedNames.clear();
+            storedNames.addAll(names);
+        }
+
         Set<TYPE> set = this.getListForType(type);
         set.clear();
 
         this.setValuesForList(set, names);
+        this.updateIds(type);
+        this.builtTagsRevision = tagsRevision;
     }
 
     protected abstract void setValuesForList(Set<TYPE> set, List<String> names);
 
+    /**
+     * Returns the registry of the values, which is used to check the values by their raw IDs
+     * using a BitSet. If this returns null, then the hash sets are used.
+     */
+    @Nullable
+    protected Registry<TYPE> getRegistry()
+    {
+        return null;
+    }
+
+    /**
+     * Adds the values for the given names from the registry to the set.
+     * The names can be either registry names, or tag names prefixed with '#', like {@code #minecraft:logs}.
+     * @param errorKey the translation key for the invalid entry warning
+     */
+    protected void addValuesFromRegistry(Registry<TYPE> registry, Set<TYPE> set, List<String> names, String errorKey)
+    {
+        for (String name : names)
+        {
+            boolean isTag = name.startsWith("#");
+            Identifier rl = null;
+
+            try
+            {
+                rl = Identifier.tryParse(isTag ? name.substring(1) : name);
+            }
+            catch (Exception ignore) {}
+
+            if (rl != null && isTag)
+            {
+                // The tags are not available before joining a world, the lists get re-built after that
+                for (RegistryEntry<TYPE> entry : registry.iterateEntries(TagKey.of(registry.getKey(), rl)))
+                {
+                    set.add(entry.value());
+                }
+
+                continue;
+            }
+
+            Optional<RegistryEntry.Reference<TYPE>> opt = rl != null ? registry.getEntry(rl) : Optional.empty();
+
+            if (opt.isPresent())
+            {
+                set.add(opt.get().value());
+            }
+            else if (this.logInvalidEntries)
+            {
+                MaLiLib.logger.warn(StringUtils.translate(errorKey, name));
+            }
+        }
+    }
+
+    private void updateIds(ListType type)
+    {
+        Registry<TYPE> registry = this.getRegistry();
+        BitSet ids = this.getIdsForType(type);
+        ids.clear();
+
+        if (registry != null)
+        {
+            for (TYPE value : this.getListForType(type))
+            {
+                int id = registry.getRawId(value);
+
+                if (id >= 0)
+                {
+                    ids.set(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-builds the lists from the stored names, if the tags have changed since they were built
+     */
+    protected void updateIfTagsChanged()
+    {
+        if (this.builtTagsRevision != tagsRevision)
+        {
+            // The invalid entries were already reported when the lists were first set
+            this.logInvalidEntries = false;
+
+            try
+            {
+                this.setValuesForList(ListType.BLACKLIST, this.blackListNames);
+                this.setValuesForList(ListType.WHITELIST, this.whiteListNames);
+            }
+            finally
+            {
+                this.logInvalidEntries = true;
+            }
+        }
+    }
+
+    /**
+     * Checks if the given value is allowed.
+     * Note that for restrictions with a registry, getting the raw ID of the value
+     * is also a hash map lookup in the registry. If the raw ID is already available,
+     * or it can be cached by the caller, then use {@link #isAllowedRawId(int)} instead.
+     */
     public boolean isAllowed(TYPE value)
     {
+        if (this.type == ListType.NONE)
+        {
+            return true;
+        }
+
+        Registry<TYPE> registry = this.getRegistry();
+
+        if (registry != null)
+        {
+            return this.isAllowedRawId(registry.getRawId(value));
+        }
+
+        this.updateIfTagsChanged();
+
         if (this.type == ListType.BLACKLIST)
         {
             return this.blackList.contains(value) == false;
         }
-        else if (this.type == ListType.WHITELIST)
+        else
         {
             return this.whiteList.contains(value);
         }
-        else
+    }
+
+    /**
+     * Checks if the value with the given raw registry ID is allowed.
+     * This is just a BitSet lookup, so this is the one to use in hot code paths.
+     * This only works for restrictions that have a registry, see {@link #getRegistry()}.
+     * @param rawId the raw ID of the value in the registry
+     */
+    public boolean isAllowedRawId(int rawId)
+    {
+        if (this.type == ListType.NONE)
         {
             return true;
         }
+
+        this.updateIfTagsChanged();
+
+        boolean listed = rawId >= 0 && this.getIdsForType(this.type).get(rawId);
+
+        return this.type == ListType.BLACKLIST ? listed == false : listed;
     }
 
     public enum ListType implements IConfigOptionListEntry